@@ -10,14 +10,24 @@ public final class Constants {
   private Constants() {}
 
   /** API Route */
+  public static final String API_SEARCH = "/todos/search";
+  public static final String API_STATS = "/todos/stats";
+  public static final String API_EXPORT = "/todos/export";
+  public static final String API_IMPORT = "/todos/import";
   public static final String API_GET = "/todos/:todoId";
   public static final String API_LIST_ALL = "/todos";
   public static final String API_CREATE = "/todos";
   public static final String API_UPDATE = "/todos/:todoId";
   public static final String API_DELETE = "/todos/:todoId";
   public static final String API_DELETE_ALL = "/todos";
+  public static final String API_LIST_PREFIX = "/lists/:listId";
+  public static final String API_ADMIN_SLOW_REQUESTS = "/admin/slow-requests";
+  public static final String API_ADMIN_ACCESS_LOG = "/admin/access-log";
 
   /** Persistence key */
   public static final String REDIS_TODO_KEY = "VERT_TODO";
 
+  /** Config defaults */
+  public static final long DEFAULT_RECONCILE_INTERVAL = 60000; // stats.reconcile_interval, in ms
+
 }
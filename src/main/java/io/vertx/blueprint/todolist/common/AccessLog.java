@@ -0,0 +1,282 @@
+package io.vertx.blueprint.todolist.common;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous access log.
+ * <p>
+ * Request threads claim a slot of a preallocated ring with a CAS on the producer
+ * sequence and publish it by writing the slot sequence; they never block or allocate.
+ * When the ring is full the entry is dropped and counted instead. A single background
+ * thread drains the ring in order to a file, one line per request:
+ * <pre>
+ * &lt;epoch ms&gt; &lt;method&gt; &lt;route&gt; &lt;status&gt; &lt;latency us&gt; &lt;bytes&gt;
+ * </pre>
+ * The file is rolled over to {@code <path>.1} ... {@code <path>.<maxFiles>} once it
+ * reaches {@code maxBytes}. Drops are reported in the file as {@code # dropped <n>} lines.
+ * <p>
+ * Verticle instances share one log per file through {@link #open} and {@link #release()},
+ * since several writers appending to the same file would interleave and roll it over
+ * each other.
+ */
+public class AccessLog {
+
+  private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** Shared logs by canonical path, also guarding their reference counts. */
+  private static final Map<String, AccessLog> OPEN = new HashMap<>();
+
+  private final int mask;
+  private final long[] times;
+  private final String[] methods;
+  private final String[] routes;
+  private final int[] statuses;
+  private final long[] latencies;
+  private final long[] sizes;
+  /** Sequence each slot was last published for, -1 if never. */
+  private final AtomicLongArray published;
+
+  private final AtomicLong claimed = new AtomicLong();
+  private volatile long consumed;
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder written = new LongAdder();
+
+  private final String path;
+  private final RollingFile file;
+  private final Thread drainer;
+  private volatile boolean running = true;
+  private int refs;
+
+  /**
+   * @param capacity ring size, rounded up to a power of two
+   * @param path     log file
+   * @param maxBytes size at which the file is rolled over
+   * @param maxFiles number of rolled over files to keep
+   */
+  public AccessLog(int capacity, String path, long maxBytes, int maxFiles) throws IOException {
+    int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = size - 1;
+    this.times = new long[size];
+    this.methods = new String[size];
+    this.routes = new String[size];
+    this.statuses = new int[size];
+    this.latencies = new long[size];
+    this.sizes = new long[size];
+    this.published = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      published.set(i, -1);
+    }
+    this.path = path;
+    this.file = new RollingFile(new File(path), maxBytes, maxFiles);
+    this.drainer = new Thread(this::drain, "access-log-writer");
+    this.drainer.setDaemon(true);
+    this.drainer.start();
+  }
+
+  /**
+   * Get the log writing to a file, opening it if no other caller has it open. The settings
+   * of the first caller win. Blocks while the directory is created and the file opened.
+   * Each call must be paired with a {@link #release()}.
+   */
+  public static AccessLog open(int capacity, String path, long maxBytes, int maxFiles) throws IOException {
+    String key = new File(path).getCanonicalPath();
+    synchronized (OPEN) {
+      AccessLog log = OPEN.get(key);
+      if (log == null) {
+        log = new AccessLog(capacity, key, maxBytes, maxFiles);
+        OPEN.put(key, log);
+      }
+      log.refs++;
+      return log;
+    }
+  }
+
+  /**
+   * Give back a log got from {@link #open}, closing it once no caller uses it any more.
+   * May block like {@link #close()}.
+   */
+  public void release() {
+    synchronized (OPEN) {
+      if (--refs > 0) {
+        return;
+      }
+      OPEN.remove(path, this);
+    }
+    close();
+  }
+
+  /**
+   * Record a request. Never blocks.
+   *
+   * @return false if the entry was dropped because the buffer is full
+   */
+  public boolean record(String method, String route, int status, long latencyNanos, long bytes) {
+    long seq;
+    do {
+      seq = claimed.get();
+      if (seq - consumed > mask) {
+        dropped.increment();
+        return false;
+      }
+    } while (!claimed.compareAndSet(seq, seq + 1));
+    int i = (int) seq & mask;
+    times[i] = System.currentTimeMillis();
+    methods[i] = method;
+    routes[i] = route;
+    statuses[i] = status;
+    latencies[i] = latencyNanos;
+    sizes[i] = bytes;
+    published.set(i, seq);
+    return true;
+  }
+
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  public JsonObject stats() {
+    return new JsonObject()
+      .put("written", written.sum())
+      .put("dropped", dropped.sum())
+      .put("pending", claimed.get() - consumed)
+      .put("capacity", mask + 1);
+  }
+
+  /**
+   * Stop the writer thread once the buffered entries are written, and close the file.
+   */
+  public void close() {
+    running = false;
+    LockSupport.unpark(drainer);
+    try {
+      drainer.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain() {
+    StringBuilder line = new StringBuilder(128);
+    long next = 0;
+    long reportedDrops = 0;
+    try {
+      while (true) {
+        int i = (int) next & mask;
+        if (published.get(i) != next) {
+          long drops = dropped.sum();
+          if (drops != reportedDrops) {
+            file.write("# dropped " + (drops - reportedDrops) + "\n");
+            reportedDrops = drops;
+          }
+          file.flush();
+          if (!running && claimed.get() == next) {
+            break;
+          }
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+          continue;
+        }
+        line.setLength(0);
+        line.append(times[i]).append(' ')
+          .append(methods[i]).append(' ')
+          .append(routes[i]).append(' ')
+          .append(statuses[i]).append(' ')
+          .append(TimeUnit.NANOSECONDS.toMicros(latencies[i])).append(' ')
+          .append(sizes[i]).append('\n');
+        methods[i] = null;
+        routes[i] = null;
+        next++;
+        // hand the slot back before the (possibly slow) write
+        consumed = next;
+        file.write(line);
+        written.increment();
+      }
+    } catch (IOException ex) {
+      logger.error("Access log writer stopped", ex);
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Size-based rolling file, only used from the writer thread.
+   */
+  private static final class RollingFile {
+    private final File path;
+    private final long maxBytes;
+    private final int maxFiles;
+    private OutputStream out;
+    private long size;
+
+    RollingFile(File path, long maxBytes, int maxFiles) throws IOException {
+      this.path = path;
+      this.maxBytes = maxBytes;
+      this.maxFiles = maxFiles;
+      File dir = path.getAbsoluteFile().getParentFile();
+      if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+        throw new IOException("Cannot create log directory " + dir);
+      }
+      open();
+    }
+
+    void write(CharSequence text) throws IOException {
+      byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+      if (size > 0 && size + bytes.length > maxBytes) {
+        roll();
+      }
+      out.write(bytes);
+      size += bytes.length;
+    }
+
+    void flush() throws IOException {
+      out.flush();
+    }
+
+    void close() {
+      try {
+        out.close();
+      } catch (IOException ex) {
+        logger.warn("Failed to close access log", ex);
+      }
+    }
+
+    private void open() throws IOException {
+      out = new BufferedOutputStream(new FileOutputStream(path, true), 64 * 1024);
+      size = path.length();
+    }
+
+    private void roll() throws IOException {
+      out.close();
+      new File(path + "." + maxFiles).delete();
+      for (int n = maxFiles - 1; n >= 1; n--) {
+        File from = new File(path + "." + n);
+        if (from.exists()) {
+          from.renameTo(new File(path + "." + (n + 1)));
+        }
+      }
+      if (maxFiles > 0) {
+        path.renameTo(new File(path + ".1"));
+      } else {
+        path.delete();
+      }
+      open();
+    }
+  }
+}
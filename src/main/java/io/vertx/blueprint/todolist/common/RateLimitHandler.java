@@ -0,0 +1,202 @@
+package io.vertx.blueprint.todolist.common;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.core.http.HttpServerRequest;
+import io.vertx.reactivex.ext.web.RoutingContext;
+import io.vertx.reactivex.redis.RedisClient;
+import io.vertx.redis.RedisOptions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client rate limiting handler.
+ * <p>
+ * Every client, identified by its remote host, gets a token bucket refilled at {@code ratelimit.rate} requests per second with room for {@code ratelimit.burst}
+ * requests. Buckets are kept as a single "theoretical arrival time" updated with CAS
+ * (the GCRA form of a token bucket), in a concurrent map whose bins are locked only when a
+ * new client is added, and are evicted once they have been full for {@code ratelimit.idle_ms}.
+ * <p>
+ * Behind a proxy that authenticates clients and sets the {@code X-Client-Id} header, enable
+ * {@code ratelimit.trust_client_id} to limit per header value instead. The header is ignored
+ * otherwise, as a client could rotate it to get a fresh bucket on every request.
+ * <p>
+ * Limiting is local to this instance. When {@code ratelimit.redis.host} is configured the
+ * instances also share a budget of {@code ratelimit.shared_rate} requests per second per
+ * client: local counts are flushed to Redis once per second and a client over the shared
+ * budget is rejected everywhere until the next second.
+ */
+public class RateLimitHandler implements Handler<RoutingContext> {
+
+  private static final Logger logger = LoggerFactory.getLogger(RateLimitHandler.class);
+
+  public static final String CLIENT_ID_HEADER = "X-Client-Id";
+  public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+  public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+  public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final long SHARED_WINDOW_MS = 1000;
+  private static final String SHARED_KEY_PREFIX = "VERT_RATE:";
+
+  private final long emissionInterval;
+  private final long burstTolerance;
+  private final int burst;
+  private final long idleNanos;
+  private final boolean trustClientId;
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final long evictTimer;
+  private final RedisClient redis;
+  private final long sharedLimit;
+  private final long flushTimer;
+
+  public RateLimitHandler(Vertx vertx, JsonObject config) {
+    this.vertx = vertx;
+    double rate = config.getDouble("ratelimit.rate");
+    this.burst = config.getInteger("ratelimit.burst", (int) Math.max(1, Math.ceil(rate)));
+    this.emissionInterval = (long) (NANOS_PER_SECOND / rate);
+    this.burstTolerance = emissionInterval * burst;
+    long idleMillis = config.getLong("ratelimit.idle_ms", 60000L);
+    this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    this.evictTimer = vertx.setPeriodic(idleMillis, id -> evictIdle());
+    this.trustClientId = config.getBoolean("ratelimit.trust_client_id", false);
+
+    String redisHost = config.getString("ratelimit.redis.host");
+    if (redisHost != null) {
+      this.redis = RedisClient.create(vertx, new RedisOptions()
+        .setHost(redisHost)
+        .setPort(config.getInteger("ratelimit.redis.port", 6379)));
+      this.sharedLimit = config.getLong("ratelimit.shared_rate", (long) Math.ceil(rate));
+      this.flushTimer = vertx.setPeriodic(SHARED_WINDOW_MS, id -> flushShared());
+    } else {
+      this.redis = null;
+      this.sharedLimit = 0;
+      this.flushTimer = -1;
+    }
+  }
+
+  @Override
+  public void handle(RoutingContext context) {
+    String client = clientOf(context.request());
+    Bucket bucket = buckets.computeIfAbsent(client, k -> new Bucket());
+    long now = System.nanoTime();
+    long wait = bucket.acquire(now, emissionInterval, burstTolerance);
+    if (wait == 0 && bucket.sharedBlockedUntil > System.currentTimeMillis()) {
+      wait = TimeUnit.MILLISECONDS.toNanos(bucket.sharedBlockedUntil - System.currentTimeMillis());
+    }
+    context.response().putHeader(LIMIT_HEADER, String.valueOf(burst));
+    if (wait > 0) {
+      long retryAfter = Math.max(1, (wait + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+      context.response().setStatusCode(429)
+        .putHeader(REMAINING_HEADER, "0")
+        .putHeader(RETRY_AFTER_HEADER, String.valueOf(retryAfter))
+        .putHeader("content-type", "application/json")
+        .end(new JsonObject().put("error", "too_many_requests").encodePrettily());
+      return;
+    }
+    if (redis != null) {
+      bucket.unflushed.increment();
+    }
+    context.response().putHeader(REMAINING_HEADER, String.valueOf(bucket.remaining(now, emissionInterval, burstTolerance)));
+    context.next();
+  }
+
+  /**
+   * Stop the eviction and flush timers and close the shared budget connection, if any.
+   *
+   * @return asynchronous result
+   */
+  public Completable close() {
+    vertx.cancelTimer(evictTimer);
+    if (redis == null) {
+      return Completable.complete();
+    }
+    vertx.cancelTimer(flushTimer);
+    return redis.rxClose();
+  }
+
+  /**
+   * @return the number of clients currently tracked
+   */
+  int clients() {
+    return buckets.size();
+  }
+
+  private String clientOf(HttpServerRequest request) {
+    if (trustClientId) {
+      String id = request.getHeader(CLIENT_ID_HEADER);
+      if (id != null && !id.isEmpty()) {
+        return id;
+      }
+    }
+    return request.remoteAddress().host();
+  }
+
+  void evictIdle() {
+    long now = System.nanoTime();
+    // a bucket whose arrival time is well in the past is full and can be recreated on demand
+    buckets.entrySet().removeIf(e -> now - e.getValue().tat.get() > idleNanos
+      && e.getValue().unflushed.sum() == 0);
+  }
+
+  private void flushShared() {
+    long window = System.currentTimeMillis() / SHARED_WINDOW_MS;
+    buckets.forEach((client, bucket) -> {
+      long count = bucket.unflushed.sumThenReset();
+      if (count == 0) {
+        return;
+      }
+      String key = SHARED_KEY_PREFIX + client + ":" + window;
+      redis.rxIncrby(key, count)
+        .flatMap(total -> {
+          if (total > sharedLimit) {
+            bucket.sharedBlockedUntil = (window + 1) * SHARED_WINDOW_MS;
+          }
+          return total == count ? redis.rxPexpire(key, SHARED_WINDOW_MS * 2) : Single.just(0L);
+        })
+        .subscribe(r -> {}, ex -> logger.warn("Failed to flush shared rate budget: " + ex.getMessage()));
+    });
+  }
+
+  private static final class Bucket {
+    /** Theoretical arrival time of the next request, in {@link System#nanoTime()} units. */
+    private final AtomicLong tat = new AtomicLong(System.nanoTime());
+    private final LongAdder unflushed = new LongAdder();
+    private volatile long sharedBlockedUntil;
+
+    /**
+     * Try to take a token.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    long acquire(long now, long interval, long tolerance) {
+      while (true) {
+        long current = tat.get();
+        long next = Math.max(current, now) + interval;
+        long excess = next - now - tolerance;
+        if (excess > 0) {
+          return excess;
+        }
+        if (tat.compareAndSet(current, next)) {
+          return 0;
+        }
+      }
+    }
+
+    long remaining(long now, long interval, long tolerance) {
+      long used = Math.max(tat.get(), now) - now;
+      return Math.max(0, (tolerance - used) / interval);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package io.vertx.blueprint.todolist.common;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.reactivex.ext.web.RoutingContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase timings of a single request.
+ * <p>
+ * Each phase lasts from the end of the previous mark to its own mark:
+ * {@code parse} ends once the body has been read, {@code service} once the
+ * {@code TodoService} call completes, {@code encode} once the result has been converted,
+ * and {@code write} once the response has been written out.
+ */
+public final class RequestTiming {
+
+  static final String CONTEXT_KEY = "request.timing";
+
+  public enum Phase {
+    PARSE("parse"), SERVICE("service"), ENCODE("encode"), WRITE("write");
+
+    private final String metricName;
+
+    Phase(String metricName) {
+      this.metricName = metricName;
+    }
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
+  private final long start = System.nanoTime();
+  private final long[] durations = new long[PHASES.length];
+  private long last = start;
+  private long end;
+
+  RequestTiming() {
+  }
+
+  /**
+   * Mark the end of a phase for the request, if timing is enabled.
+   *
+   * @param context routing context
+   * @param phase   the phase that just finished
+   */
+  public static void mark(RoutingContext context, Phase phase) {
+    RequestTiming timing = context.get(CONTEXT_KEY);
+    if (timing != null) {
+      timing.mark(phase);
+    }
+  }
+
+  void mark(Phase phase) {
+    long now = System.nanoTime();
+    durations[phase.ordinal()] += now - last;
+    last = now;
+  }
+
+  void finish() {
+    end = System.nanoTime();
+  }
+
+  long totalNanos() {
+    return (end == 0 ? System.nanoTime() : end) - start;
+  }
+
+  /**
+   * Format the timings as a {@code Server-Timing} header value, in milliseconds.
+   */
+  String toServerTiming() {
+    StringBuilder sb = new StringBuilder(96);
+    for (Phase phase : PHASES) {
+      if (durations[phase.ordinal()] > 0) {
+        sb.append(phase.metricName).append(";dur=").append(millis(durations[phase.ordinal()])).append(", ");
+      }
+    }
+    return sb.append("total;dur=").append(millis(totalNanos())).toString();
+  }
+
+  JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    for (Phase phase : PHASES) {
+      json.put(phase.metricName, millis(durations[phase.ordinal()]));
+    }
+    return json.put("total", millis(totalNanos()));
+  }
+
+  private static double millis(long nanos) {
+    return Math.round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1) * 1000) / 1000.0;
+  }
+}
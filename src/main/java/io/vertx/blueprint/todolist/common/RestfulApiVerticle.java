@@ -7,6 +7,7 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import io.vertx.reactivex.core.AbstractVerticle;
 import io.vertx.reactivex.core.http.HttpServerResponse;
+import io.vertx.reactivex.ext.web.Route;
 import io.vertx.reactivex.ext.web.Router;
 import io.vertx.reactivex.ext.web.RoutingContext;
 import io.vertx.reactivex.ext.web.handler.CorsHandler;
@@ -52,9 +53,19 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     allowHeaders.add("origin");
     allowHeaders.add("Content-Type");
     allowHeaders.add("accept");
+    allowHeaders.add(RateLimitHandler.CLIENT_ID_HEADER);
+    allowHeaders.add("X-Read-Your-Writes");
+    // response headers that cross-origin scripts may read
+    Set<String> exposedHeaders = new HashSet<>();
+    exposedHeaders.add("X-Change-Seq");
+    exposedHeaders.add("Server-Timing");
+    exposedHeaders.add(RateLimitHandler.LIMIT_HEADER);
+    exposedHeaders.add(RateLimitHandler.REMAINING_HEADER);
+    exposedHeaders.add(RateLimitHandler.RETRY_AFTER_HEADER);
     // CORS support
     router.route().handler(CorsHandler.create("*")
       .allowedHeaders(allowHeaders)
+      .exposedHeaders(exposedHeaders)
       .allowedMethod(HttpMethod.GET)
       .allowedMethod(HttpMethod.POST)
       .allowedMethod(HttpMethod.DELETE)
@@ -63,6 +74,70 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     );
   }
 
+  /**
+   * Enable per-client rate limiting for web router when {@code ratelimit.rate} is configured.
+   * Install it before the body handler so that rejected requests are not buffered.
+   *
+   * @param router router instance
+   * @return the installed handler, to be closed when the verticle stops, or {@code null}
+   * @see RateLimitHandler
+   */
+  protected RateLimitHandler enableRateLimiting(Router router) {
+    if (config().getDouble("ratelimit.rate", 0d) <= 0) {
+      return null;
+    }
+    RateLimitHandler handler = new RateLimitHandler(vertx, config());
+    router.route().handler(handler);
+    return handler;
+  }
+
+  /**
+   * Enable per-request phase timing for web router. Install it before any other handler.
+   * Every response carries a {@code Server-Timing} header, readable by pages of any origin
+   * ({@code Timing-Allow-Origin}), and slow requests are sampled into {@code slowLog}.
+   *
+   * @param router  router instance
+   * @param slowLog buffer of recent slow requests
+   * @see RequestTiming
+   */
+  protected void enableRequestTiming(Router router, SlowRequestLog slowLog) {
+    router.route().handler(context -> {
+      RequestTiming timing = new RequestTiming();
+      context.put(RequestTiming.CONTEXT_KEY, timing);
+      context.addHeadersEndHandler(v -> context.response()
+        .putHeader("Server-Timing", timing.toServerTiming())
+        .putHeader("Timing-Allow-Origin", "*"));
+      context.addBodyEndHandler(v -> {
+        timing.mark(RequestTiming.Phase.WRITE);
+        timing.finish();
+        slowLog.offer(context.request().rawMethod(), context.request().path(),
+          context.response().getStatusCode(), timing);
+      });
+      context.next();
+    });
+  }
+
+  /**
+   * Enable access logging for web router. Install it before any other handler, so that
+   * rejected requests are logged as well.
+   *
+   * @param router    router instance
+   * @param accessLog access log to record requests into
+   */
+  protected void enableAccessLog(Router router, AccessLog accessLog) {
+    router.route().handler(context -> {
+      long start = System.nanoTime();
+      context.addBodyEndHandler(v -> {
+        // the route pattern rather than the raw path, to keep the log compact
+        Route route = context.currentRoute();
+        String path = route == null || route.getPath() == null ? "-" : route.getPath();
+        accessLog.record(context.request().rawMethod(), path, context.response().getStatusCode(),
+          System.nanoTime() - start, context.response().bytesWritten());
+      });
+      context.next();
+    });
+  }
+
   // Helper status methods.
 
   /**
@@ -77,7 +152,10 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     if (asyncResult == null) {
       internalError(context, "invalid_status");
     } else {
-      asyncResult.subscribe(response::end, ex -> internalError(context, ex));
+      asyncResult.subscribe(() -> {
+        RequestTiming.mark(context, RequestTiming.Phase.SERVICE);
+        response.end();
+      }, ex -> internalError(context, ex));
     }
   }
 
@@ -92,7 +170,10 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     if (asyncResult == null) {
       internalError(context, "invalid_status");
     } else {
-      asyncResult.subscribe(() -> f.accept(context), ex -> internalError(context, ex));
+      asyncResult.subscribe(() -> {
+        RequestTiming.mark(context, RequestTiming.Phase.SERVICE);
+        f.accept(context);
+      }, ex -> internalError(context, ex));
     }
   }
 
@@ -101,7 +182,7 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     if (asyncResult == null) {
       internalError(context, "invalid_status");
     } else {
-      asyncResult.subscribe(r -> f.accept(context, converter.apply(r)), ex -> internalError(context, ex));
+      asyncResult.subscribe(r -> f.accept(context, encode(context, r, converter)), ex -> internalError(context, ex));
     }
   }
 
@@ -117,7 +198,7 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     if (asyncResult == null) {
       internalError(context, "invalid_status");
     } else {
-      asyncResult.subscribe(r -> ok(context, converter.apply(r)),
+      asyncResult.subscribe(r -> ok(context, encode(context, r, converter)),
         ex -> internalError(context, ex));
     }
   }
@@ -139,8 +220,9 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     } else {
       asyncResult.subscribe(r -> {
           if (r.isPresent()) {
-            ok(context, converter.apply(r.get()));
+            ok(context, encode(context, r.get(), converter));
           } else {
+            RequestTiming.mark(context, RequestTiming.Phase.SERVICE);
             notFound(context);
           }
         },
@@ -148,6 +230,13 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
     }
   }
 
+  private <T> String encode(RoutingContext context, T result, Function<T, String> converter) {
+    RequestTiming.mark(context, RequestTiming.Phase.SERVICE);
+    String content = converter.apply(result);
+    RequestTiming.mark(context, RequestTiming.Phase.ENCODE);
+    return content;
+  }
+
   /**
    * Send back a response with status 200 Ok.
    *
@@ -233,6 +322,18 @@ public abstract class RestfulApiVerticle extends AbstractVerticle {
       .end(new JsonObject().put("message", "not_found").encodePrettily());
   }
 
+  /**
+   * Send back a response with status 410 Gone.
+   *
+   * @param context routing context
+   * @param content response content
+   */
+  protected void gone(RoutingContext context, String content) {
+    context.response().setStatusCode(410)
+      .putHeader("content-type", "application/json")
+      .end(content);
+  }
+
   /**
    * Send back a response with status 500 Internal Error.
    *
@@ -0,0 +1,104 @@
+package io.vertx.blueprint.todolist.common;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size ring buffer of recent slow requests.
+ * Once full, each new entry overwrites the oldest one.
+ * <p>
+ * Requests taking at least {@code slowMillis} are slow, and a {@code sampleRate}
+ * fraction of them is kept.
+ */
+public class SlowRequestLog {
+
+  private final Entry[] ring;
+  private final long slowNanos;
+  private final double sampleRate;
+  private int next;
+
+  public SlowRequestLog(int capacity, long slowMillis, double sampleRate) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    if (slowMillis < 0) {
+      throw new IllegalArgumentException("Slow request threshold must not be negative");
+    }
+    if (!(sampleRate >= 0 && sampleRate <= 1)) {
+      throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+    }
+    this.ring = new Entry[capacity];
+    this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Record a finished request if it was slow and is sampled.
+   *
+   * @return whether the request was recorded
+   */
+  boolean offer(String method, String path, int status, RequestTiming timing) {
+    if (timing.totalNanos() < slowNanos
+      || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+      return false;
+    }
+    record(method, path, status, timing);
+    return true;
+  }
+
+  private synchronized void record(String method, String path, int status, RequestTiming timing) {
+    ring[next] = new Entry(System.currentTimeMillis(), method, path, status, timing.totalNanos(), timing.toJson());
+    next = (next + 1) % ring.length;
+  }
+
+  /**
+   * Get the slowest requests currently in the buffer, slowest first.
+   *
+   * @param limit maximum number of entries
+   * @return requests in JSON format
+   */
+  public synchronized JsonArray slowest(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit must not be negative");
+    }
+    List<Entry> entries = new ArrayList<>(ring.length);
+    for (Entry entry : ring) {
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    entries.sort(Comparator.comparingLong((Entry e) -> e.totalNanos).reversed());
+    JsonArray result = new JsonArray();
+    entries.stream().limit(limit).forEach(e -> result.add(new JsonObject()
+      .put("timestamp", e.timestamp)
+      .put("method", e.method)
+      .put("path", e.path)
+      .put("status", e.status)
+      .put("timings", e.timings)));
+    return result;
+  }
+
+  private static final class Entry {
+    private final long timestamp;
+    private final String method;
+    private final String path;
+    private final int status;
+    private final long totalNanos;
+    private final JsonObject timings;
+
+    Entry(long timestamp, String method, String path, int status, long totalNanos, JsonObject timings) {
+      this.timestamp = timestamp;
+      this.method = method;
+      this.path = path;
+      this.status = status;
+      this.totalNanos = totalNanos;
+      this.timings = timings;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package io.vertx.blueprint.todolist.entity;
+
+import java.util.List;
+
+/**
+ * Todos changed after a given change sequence: the current state of every todo
+ * created or updated since then, and the ids of the deleted ones.
+ */
+public class TodoChanges {
+
+  private final String seq;
+  private final List<Todo> upserts;
+  private final List<String> deletes;
+
+  public TodoChanges(String seq, List<Todo> upserts, List<String> deletes) {
+    this.seq = seq;
+    this.upserts = upserts;
+    this.deletes = deletes;
+  }
+
+  /**
+   * @return the token to ask for changes since next time
+   */
+  public String getSeq() {
+    return seq;
+  }
+
+  public List<Todo> getUpserts() {
+    return upserts;
+  }
+
+  public List<String> getDeletes() {
+    return deletes;
+  }
+}
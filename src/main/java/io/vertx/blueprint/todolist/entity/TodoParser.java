@@ -0,0 +1,105 @@
+package io.vertx.blueprint.todolist.entity;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming parser that reads a {@link Todo} straight from a request body buffer,
+ * without building an intermediate {@code String} or {@code JsonObject}.
+ * <p>
+ * It accepts the same input as {@link TodoConverter#fromJson}: fields that are absent,
+ * {@code null} or of the wrong type are left unset, so a parsed patch still carries the
+ * null-means-unchanged semantics {@link Todo#merge(Todo)} relies on.
+ */
+public final class TodoParser {
+
+  private TodoParser() {}
+
+  /**
+   * Parse a todo from a JSON body.
+   *
+   * @param body request body
+   * @return the parsed todo, or {@code null} if the body is empty
+   * @throws DecodeException if the body is not a single JSON object, or a number does not fit
+   */
+  public static Todo parse(Buffer body) {
+    if (body == null || body.length() == 0) {
+      return null;
+    }
+    ByteBuf buf = body.getByteBuf();
+    try (JsonParser parser = createParser(buf)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new DecodeException("Failed to decode: expected a JSON object");
+      }
+      Todo todo = new Todo();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        switch (field) {
+          case "id":
+            if (token.isNumeric()) {
+              todo.setId(intValue(parser, field));
+            }
+            break;
+          case "title":
+            if (token == JsonToken.VALUE_STRING) {
+              todo.setTitle(parser.getText());
+            }
+            break;
+          case "completed":
+            if (token.isBoolean()) {
+              todo.setCompleted(parser.getBooleanValue());
+            }
+            break;
+          case "order":
+            if (token.isNumeric()) {
+              todo.setOrder(intValue(parser, field));
+            }
+            break;
+          case "url":
+            if (token == JsonToken.VALUE_STRING) {
+              todo.setUrl(parser.getText());
+            }
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+      if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+        throw new DecodeException("Failed to decode: unterminated JSON object");
+      }
+      if (parser.nextToken() != null) {
+        throw new DecodeException("Failed to decode: unexpected content after the JSON object");
+      }
+      return todo;
+    } catch (IOException ex) {
+      throw new DecodeException("Failed to decode: " + ex.getMessage());
+    }
+  }
+
+  private static int intValue(JsonParser parser, String field) throws IOException {
+    try {
+      return parser.getIntValue();
+    } catch (JsonParseException ex) {
+      throw new DecodeException("Failed to decode: " + field + " is out of range");
+    }
+  }
+
+  private static JsonParser createParser(ByteBuf buf) throws IOException {
+    if (buf.hasArray()) {
+      // heap buffers are parsed in place
+      return Json.mapper.getFactory()
+        .createParser(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+    }
+    return Json.mapper.getFactory().createParser((InputStream) new ByteBufInputStream(buf));
+  }
+}
@@ -0,0 +1,39 @@
+package io.vertx.blueprint.todolist.entity;
+
+/**
+ * Aggregate counts of todos.
+ */
+public class TodoStats {
+
+  private final long total;
+  private final long completed;
+
+  public TodoStats(long total, long completed) {
+    this.total = total;
+    this.completed = completed;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public long getCompleted() {
+    return completed;
+  }
+
+  public long getActive() {
+    return total - completed;
+  }
+
+  public TodoStats plus(TodoStats other) {
+    return new TodoStats(total + other.total, completed + other.completed);
+  }
+
+  @Override
+  public String toString() {
+    return "TodoStats -> {" +
+      "total=" + total +
+      ", completed=" + completed +
+      '}';
+  }
+}
@@ -0,0 +1,21 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Single;
+
+/**
+ * A {@link TodoService} that can move todos completed long ago out of the working set
+ * into a compressed archive tier. Archived todos no longer show up in listings, exports
+ * or stats, but {@link #getCertain(String)} still finds them, and updating one brings it
+ * back to the working set.
+ */
+public interface ArchivingTodoService extends TodoService {
+
+  /**
+   * Archive todos completed before a point in time, across every list.
+   *
+   * @param completedBefore completion time cutoff, in epoch milliseconds
+   * @param limit           maximum number of todos to archive per list (or per table)
+   * @return number of archived todos
+   */
+  Single<Integer> archiveCompleted(long completedBefore, int limit);
+}
@@ -0,0 +1,167 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoChanges;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded log of todo changes, each tagged with a monotonically increasing sequence.
+ * <p>
+ * The log keeps the last {@code capacity} changes in a ring. Deletions are kept as
+ * tombstones. Clients get an opaque token made of the sequence and a random epoch
+ * picked when the log is created, so a token handed out by another instance or a
+ * previous run is recognised as foreign. Changes can be served for any sequence at or
+ * above the {@link #floor()}; older sequences (overwritten, or before a delete-all) and
+ * foreign tokens require a full resync.
+ * <p>
+ * This class is not thread-safe, it is meant to be used from a single Vert.x context.
+ */
+public class ChangeLog {
+
+  private static final char TOKEN_SEPARATOR = '.';
+
+  private final String epoch;
+  private final long[] seqs;
+  private final String[] ids;
+  private final Todo[] todos;
+  private int head;
+  private int size;
+  private long current;
+  private long floor;
+
+  public ChangeLog(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.seqs = new long[capacity];
+    this.ids = new String[capacity];
+    this.todos = new Todo[capacity];
+    this.epoch = Long.toHexString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+  }
+
+  public long current() {
+    return current;
+  }
+
+  /**
+   * @return the token of the latest change, to be handed back to {@link #since(String)}
+   */
+  public String currentToken() {
+    return epoch + TOKEN_SEPARATOR + current;
+  }
+
+  /**
+   * @return the oldest sequence changes can still be served from
+   */
+  public long floor() {
+    return floor;
+  }
+
+  public void recordUpsert(Todo todo) {
+    append(String.valueOf(todo.getId()), new Todo(todo));
+  }
+
+  public void recordDelete(String todoId) {
+    append(todoId, null);
+  }
+
+  /**
+   * Record that every todo was removed. Clients behind this point have to resync.
+   */
+  public void recordReset() {
+    current++;
+    floor = current;
+    size = 0;
+    Arrays.fill(ids, null);
+    Arrays.fill(todos, null);
+  }
+
+  /**
+   * Get the net changes after a token handed out by {@link #currentToken()}.
+   *
+   * @param token last token seen by the client
+   * @return the changes, or {@code null} if the client must do a full resync
+   * @throws NumberFormatException if the token is malformed
+   */
+  public TodoChanges since(String token) {
+    int separator = token.lastIndexOf(TOKEN_SEPARATOR);
+    if (separator < 0) {
+      throw new NumberFormatException("Malformed change token: " + token);
+    }
+    long seq = Long.parseLong(token.substring(separator + 1));
+    if (!epoch.equals(token.substring(0, separator))) {
+      return null;
+    }
+    return since(seq);
+  }
+
+  /**
+   * Get the net changes after a sequence of this log.
+   *
+   * @param since last sequence seen by the client
+   * @return the changes, or {@code null} if the client must do a full resync
+   */
+  public TodoChanges since(long since) {
+    if (since < floor || since > current) {
+      return null;
+    }
+    // the latest change of each todo wins
+    Map<String, Todo> latest = new LinkedHashMap<>();
+    int capacity = seqs.length;
+    for (int i = firstAfter(since); i < size; i++) {
+      int idx = (head - size + i + capacity) % capacity;
+      latest.remove(ids[idx]);
+      latest.put(ids[idx], todos[idx]);
+    }
+    List<Todo> upserts = new ArrayList<>();
+    List<String> deletes = new ArrayList<>();
+    latest.forEach((id, todo) -> {
+      if (todo == null) {
+        deletes.add(id);
+      } else {
+        upserts.add(todo);
+      }
+    });
+    return new TodoChanges(currentToken(), upserts, deletes);
+  }
+
+  /**
+   * Binary search the ring, whose sequences increase from the oldest entry.
+   *
+   * @return the position (from the oldest entry) of the first change after {@code since}
+   */
+  private int firstAfter(long since) {
+    int capacity = seqs.length;
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (seqs[(head - size + mid + capacity) % capacity] > since) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  private void append(String id, Todo todo) {
+    int capacity = seqs.length;
+    if (size == capacity) {
+      // the oldest change is dropped, so only sequences from it onwards can be served
+      floor = seqs[head];
+    } else {
+      size++;
+    }
+    seqs[head] = ++current;
+    ids[head] = id;
+    todos[head] = todo;
+    head = (head + 1) % capacity;
+  }
+}
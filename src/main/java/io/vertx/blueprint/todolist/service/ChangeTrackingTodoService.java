@@ -0,0 +1,78 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoChanges;
+
+import java.util.List;
+
+/**
+ * A {@link TodoService} decorator that records the writes going through it in a
+ * {@link ChangeLog}, so clients can fetch only what changed since their last sync.
+ */
+public class ChangeTrackingTodoService extends ForwardingTodoService {
+
+  public static final int DEFAULT_CAPACITY = 10000;
+
+  private final ChangeLog changes;
+
+  public ChangeTrackingTodoService(TodoService delegate) {
+    this(delegate, DEFAULT_CAPACITY);
+  }
+
+  public ChangeTrackingTodoService(TodoService delegate, int capacity) {
+    super(delegate);
+    this.changes = new ChangeLog(capacity);
+  }
+
+  @Override
+  public Single<Todo> insert(Todo todo) {
+    return delegate.insert(todo)
+      .doOnSuccess(changes::recordUpsert);
+  }
+
+  @Override
+  public Completable insertAll(List<Todo> todos) {
+    return delegate.insertAll(todos)
+      .doOnComplete(() -> todos.forEach(changes::recordUpsert));
+  }
+
+  @Override
+  public Maybe<Todo> update(String todoId, Todo newTodo) {
+    return delegate.update(todoId, newTodo)
+      .doOnSuccess(changes::recordUpsert);
+  }
+
+  @Override
+  public Completable delete(String todoId) {
+    return delegate.delete(todoId)
+      .doOnComplete(() -> changes.recordDelete(todoId));
+  }
+
+  @Override
+  public Completable deleteAll() {
+    return delegate.deleteAll()
+      .doOnComplete(changes::recordReset);
+  }
+
+  /**
+   * @return the latest change token, to be handed out with a full listing
+   */
+  public String currentSeq() {
+    return changes.currentToken();
+  }
+
+  /**
+   * Get the todos changed after a change token.
+   *
+   * @param since last token seen by the client
+   * @return the changes, or {@code null} if the token is too old or from another instance
+   * and the client has to resync
+   * @throws NumberFormatException if the token is malformed
+   */
+  public TodoChanges changesSince(String since) {
+    return changes.since(since);
+  }
+}
@@ -0,0 +1,44 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.UpdateResult;
+import io.vertx.reactivex.ext.jdbc.JDBCClient;
+
+/**
+ * {@link SqlEndpoint} backed by a Vert.x {@link JDBCClient}, which runs the
+ * blocking driver calls on the Vert.x worker pool.
+ */
+class ClientSqlEndpoint implements SqlEndpoint {
+
+  private final JDBCClient client;
+
+  ClientSqlEndpoint(JDBCClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public Single<ResultSet> query(String sql, JsonArray params) {
+    return params == null ? client.rxQuery(sql) : client.rxQueryWithParams(sql, params);
+  }
+
+  @Override
+  public Single<UpdateResult> update(String sql, JsonArray params) {
+    return params == null ? client.rxUpdate(sql) : client.rxUpdateWithParams(sql, params);
+  }
+
+  @Override
+  public Completable execute(String sql) {
+    return client.rxGetConnection()
+      .flatMapCompletable(connection -> connection.rxExecute(sql)
+        .doOnTerminate(connection::close)
+      );
+  }
+
+  @Override
+  public Completable close() {
+    return client.rxClose();
+  }
+}
@@ -0,0 +1,101 @@
+package io.vertx.blueprint.todolist.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable consistent hash ring. Each node is placed on the ring
+ * at several virtual points so that keys spread evenly and adding or removing
+ * a node only moves the keys owned by its points.
+ *
+ * @param <T> the type of node
+ */
+public final class ConsistentHashRing<T> {
+
+  public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  private final List<T> nodes;
+  private final int[] points;
+  private final int[] owners;
+
+  /**
+   * Create a ring for the given nodes.
+   *
+   * @param nodes        node list, the string form of each node is used as its identity
+   * @param virtualNodes number of virtual points per node
+   */
+  public ConsistentHashRing(List<T> nodes, int virtualNodes) {
+    Objects.requireNonNull(nodes);
+    if (nodes.isEmpty()) {
+      throw new IllegalArgumentException("At least one node is required");
+    }
+    if (virtualNodes <= 0) {
+      throw new IllegalArgumentException("Virtual node count must be positive");
+    }
+    this.nodes = new ArrayList<>(nodes);
+    int size = nodes.size() * virtualNodes;
+    long[] ring = new long[size];
+    for (int n = 0; n < nodes.size(); n++) {
+      String id = String.valueOf(nodes.get(n));
+      for (int v = 0; v < virtualNodes; v++) {
+        int h = hash(id + "#" + v);
+        // pack the point and its owner so that one sort keeps them together
+        ring[n * virtualNodes + v] = ((long) h << 32) | n;
+      }
+    }
+    Arrays.sort(ring);
+    this.points = new int[size];
+    this.owners = new int[size];
+    for (int i = 0; i < size; i++) {
+      points[i] = (int) (ring[i] >> 32);
+      owners[i] = (int) ring[i];
+    }
+  }
+
+  public ConsistentHashRing(List<T> nodes) {
+    this(nodes, DEFAULT_VIRTUAL_NODES);
+  }
+
+  /**
+   * Find the node that owns the given key.
+   *
+   * @param key the key
+   * @return the owner node
+   */
+  public T nodeFor(String key) {
+    int h = hash(key);
+    int idx = Arrays.binarySearch(points, h);
+    if (idx < 0) {
+      idx = -idx - 1;
+    }
+    if (idx == points.length) {
+      idx = 0;
+    }
+    return nodes.get(owners[idx]);
+  }
+
+  public List<T> nodes() {
+    return nodes;
+  }
+
+  /**
+   * 32-bit FNV-1a followed by the murmur3 finalizer for better avalanche.
+   */
+  static int hash(String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    int h = 0x811c9dc5;
+    for (byte b : bytes) {
+      h ^= b;
+      h *= 0x01000193;
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
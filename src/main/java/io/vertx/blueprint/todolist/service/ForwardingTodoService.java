@@ -0,0 +1,73 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoStats;
+
+import java.util.List;
+
+/**
+ * A {@link TodoService} that forwards every call to another service.
+ * Decorators extend it and override the operations they care about.
+ */
+public abstract class ForwardingTodoService implements TodoService {
+
+  protected final TodoService delegate;
+
+  protected ForwardingTodoService(TodoService delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Completable initData() {
+    return delegate.initData();
+  }
+
+  @Override
+  public Single<Todo> insert(Todo todo) {
+    return delegate.insert(todo);
+  }
+
+  @Override
+  public Completable insertAll(List<Todo> todos) {
+    return delegate.insertAll(todos);
+  }
+
+  @Override
+  public Single<List<Todo>> getAll() {
+    return delegate.getAll();
+  }
+
+  @Override
+  public Flowable<List<Todo>> exportAll(int batchSize) {
+    return delegate.exportAll(batchSize);
+  }
+
+  @Override
+  public Maybe<Todo> getCertain(String todoID) {
+    return delegate.getCertain(todoID);
+  }
+
+  @Override
+  public Maybe<Todo> update(String todoId, Todo newTodo) {
+    return delegate.update(todoId, newTodo);
+  }
+
+  @Override
+  public Completable delete(String todoId) {
+    return delegate.delete(todoId);
+  }
+
+  @Override
+  public Completable deleteAll() {
+    return delegate.deleteAll();
+  }
+
+  @Override
+  public Single<TodoStats> getStats() {
+    return delegate.getStats();
+  }
+}
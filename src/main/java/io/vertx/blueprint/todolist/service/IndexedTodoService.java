@@ -0,0 +1,85 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.vertx.blueprint.todolist.entity.Todo;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link TodoService} decorator that keeps a {@link TitleIndex} in sync with
+ * the writes going through it, and serves title searches from the index.
+ * The index is rebuilt from {@link #getAll()} when the service is initialized.
+ */
+public class IndexedTodoService extends ForwardingTodoService {
+
+  private final TitleIndex index = new TitleIndex();
+
+  public IndexedTodoService(TodoService delegate) {
+    super(delegate);
+  }
+
+  @Override
+  public Completable initData() {
+    return delegate.initData()
+      .andThen(delegate.getAll())
+      .doOnSuccess(todos -> {
+        index.clear();
+        todos.forEach(todo -> index.put(todo.getId(), todo.getTitle()));
+      })
+      .toCompletable();
+  }
+
+  @Override
+  public Single<Todo> insert(Todo todo) {
+    return delegate.insert(todo)
+      .doOnSuccess(r -> index.put(r.getId(), r.getTitle()));
+  }
+
+  @Override
+  public Completable insertAll(List<Todo> todos) {
+    return delegate.insertAll(todos)
+      .doOnComplete(() -> todos.forEach(todo -> index.put(todo.getId(), todo.getTitle())));
+  }
+
+  @Override
+  public Maybe<Todo> update(String todoId, Todo newTodo) {
+    return delegate.update(todoId, newTodo)
+      .doOnSuccess(r -> index.put(r.getId(), r.getTitle()));
+  }
+
+  @Override
+  public Completable delete(String todoId) {
+    return delegate.delete(todoId)
+      .doOnComplete(() -> {
+        try {
+          index.remove(Integer.parseInt(todoId));
+        } catch (NumberFormatException ignored) {
+          // not an id that could have been indexed
+        }
+      });
+  }
+
+  @Override
+  public Completable deleteAll() {
+    return delegate.deleteAll()
+      .doOnComplete(index::clear);
+  }
+
+  /**
+   * Search todos by title.
+   *
+   * @param query search text
+   * @param limit maximum number of results
+   * @return matching todos in id order
+   */
+  public Single<List<Todo>> search(String query, int limit) {
+    int[] ids = index.search(query, limit);
+    return Observable.fromIterable(() -> Arrays.stream(ids).iterator())
+      .concatMapEager(id -> delegate.getCertain(String.valueOf(id)).toObservable())
+      .toList();
+  }
+}
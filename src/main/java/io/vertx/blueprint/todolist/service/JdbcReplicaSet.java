@@ -0,0 +1,185 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.ext.jdbc.JDBCClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A JDBC primary together with its read replicas.
+ * <p>
+ * Writes always go to the primary. Reads are balanced round-robin over the replicas
+ * that passed the last health check, and fall back to the primary when none is healthy.
+ * When {@code read_your_writes_ms} is set, reads that ask for it are pinned to the primary
+ * for that long after this instance wrote to the same list, so that clients see their own
+ * writes. Other reads keep going to the replicas.
+ * <p>
+ * With {@code "executor.mode": "virtual"} every endpoint runs its statements on virtual
+ * threads ({@link VirtualThreadSqlEndpoint}) rather than the Vert.x worker pool.
+ */
+class JdbcReplicaSet {
+
+  private static final Logger logger = LoggerFactory.getLogger(JdbcReplicaSet.class);
+
+  private static final String HEALTH_CHECK_SQL = "SELECT 1";
+  private static final long DEFAULT_HEALTH_CHECK_INTERVAL = 5000;
+  private static final long HEALTH_CHECK_TIMEOUT = 2000;
+
+  private final Vertx vertx;
+  private final SqlEndpoint primary;
+  private final List<Replica> replicas;
+  private final AtomicInteger next = new AtomicInteger();
+  private final long pinMillis;
+  private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+  private long healthCheckTimer = -1;
+
+  JdbcReplicaSet(Vertx vertx, JsonObject config) {
+    this.vertx = vertx;
+    this.primary = endpoint(vertx, config, io.vertx.ext.jdbc.JDBCClient.DEFAULT_DS_NAME);
+    this.pinMillis = config.getLong("read_your_writes_ms", 0L);
+    List<Replica> list = new ArrayList<>();
+    JsonArray replicaConfigs = config.getJsonArray("replicas", new JsonArray());
+    for (int i = 0; i < replicaConfigs.size(); i++) {
+      // replicas inherit driver and pool settings from the primary
+      JsonObject replicaConfig = config.copy()
+        .mergeIn(replicaConfigs.getJsonObject(i));
+      replicaConfig.remove("replicas");
+      String name = "replica-" + i;
+      list.add(new Replica(name, endpoint(vertx, replicaConfig, name)));
+    }
+    this.replicas = Collections.unmodifiableList(list);
+    if (!replicas.isEmpty()) {
+      long interval = config.getLong("replica.health_check_interval", DEFAULT_HEALTH_CHECK_INTERVAL);
+      this.healthCheckTimer = vertx.setPeriodic(interval, id -> checkHealth());
+    }
+  }
+
+  SqlEndpoint primary() {
+    return primary;
+  }
+
+  /**
+   * Choose a client for reading from a list.
+   *
+   * @param listId         the list being read
+   * @param readYourWrites whether the read must see recent writes to the list
+   * @return the endpoint to use
+   */
+  SqlEndpoint forRead(String listId, boolean readYourWrites) {
+    if (replicas.isEmpty() || (readYourWrites && isPinned(listId))) {
+      return primary;
+    }
+    int size = replicas.size();
+    int start = Math.floorMod(next.getAndIncrement(), size);
+    for (int i = 0; i < size; i++) {
+      Replica replica = replicas.get((start + i) % size);
+      if (replica.healthy) {
+        return replica.endpoint;
+      }
+    }
+    return primary;
+  }
+
+  /**
+   * Record a write so that subsequent read-your-writes reads of the list stay on the primary.
+   *
+   * @param listId the written list
+   */
+  void markWritten(String listId) {
+    if (pinMillis <= 0 || replicas.isEmpty()) {
+      return;
+    }
+    recentWrites.put(listId, System.currentTimeMillis() + pinMillis);
+  }
+
+  /**
+   * Take a replica out of rotation after a failed read, until the next successful health check.
+   *
+   * @param endpoint the endpoint that failed
+   */
+  void markFailed(SqlEndpoint endpoint) {
+    for (Replica replica : replicas) {
+      if (replica.endpoint == endpoint && replica.healthy) {
+        logger.warn("Read from " + replica.name + " failed, removing it from rotation");
+        replica.healthy = false;
+      }
+    }
+  }
+
+  /**
+   * Stop the health checks and close the primary and every replica.
+   */
+  Completable close() {
+    if (healthCheckTimer >= 0) {
+      vertx.cancelTimer(healthCheckTimer);
+    }
+    return Flowable.fromIterable(replicas)
+      .map(replica -> replica.endpoint)
+      .startWith(primary)
+      .flatMapCompletable(SqlEndpoint::close);
+  }
+
+  private boolean isPinned(String listId) {
+    if (pinMillis <= 0) {
+      return false;
+    }
+    Long until = recentWrites.get(listId);
+    return until != null && until > System.currentTimeMillis();
+  }
+
+  private void checkHealth() {
+    long now = System.currentTimeMillis();
+    Iterator<Long> it = recentWrites.values().iterator();
+    while (it.hasNext()) {
+      if (it.next() <= now) {
+        it.remove();
+      }
+    }
+    for (Replica replica : replicas) {
+      replica.endpoint.query(HEALTH_CHECK_SQL, null)
+        .timeout(HEALTH_CHECK_TIMEOUT, TimeUnit.MILLISECONDS)
+        .subscribe(r -> {
+          if (!replica.healthy) {
+            logger.info(replica.name + " is healthy again");
+          }
+          replica.healthy = true;
+        }, ex -> {
+          if (replica.healthy) {
+            logger.warn(replica.name + " failed health check: " + ex.getMessage());
+          }
+          replica.healthy = false;
+        });
+    }
+  }
+
+  private static final class Replica {
+    private final String name;
+    private final SqlEndpoint endpoint;
+    private volatile boolean healthy = true;
+
+    Replica(String name, SqlEndpoint endpoint) {
+      this.name = name;
+      this.endpoint = endpoint;
+    }
+  }
+
+  private static SqlEndpoint endpoint(Vertx vertx, JsonObject config, String name) {
+    if ("virtual".equals(config.getString("executor.mode"))) {
+      return new VirtualThreadSqlEndpoint(vertx, config);
+    }
+    return new ClientSqlEndpoint(JDBCClient.createShared(vertx, config, name));
+  }
+}
@@ -1,121 +1,551 @@
 package io.vertx.blueprint.todolist.service;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
+import io.vertx.blueprint.todolist.Constants;
 import io.vertx.blueprint.todolist.entity.Todo;
 
+import io.vertx.blueprint.todolist.entity.TodoStats;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
 import io.vertx.ext.sql.ResultSet;
 import io.vertx.reactivex.core.Vertx;
-import io.vertx.reactivex.ext.jdbc.JDBCClient;
 
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * JDBC implementation of {@link TodoService}.
+ * <p>
+ * Writes go to the primary configured by {@code url}; reads are spread over the optional
+ * {@code replicas} (see {@link JdbcReplicaSet}), except reads through {@link #readYourWrites()}
+ * shortly after a write to the same list.
+ * <p>
+ * Aggregate counts are cached in memory, adjusted on every write made through this
+ * service and reconciled with a {@code COUNT} query every {@code stats.reconcile_interval} ms.
+ * <p>
+ * Todos are partitioned by {@code list_id}, the leading column of the primary key, so
+ * ids are unique within a list and every query is scoped to one list. Views of other
+ * lists keep their own counters, reconciled when opened.
+ * <p>
+ * Completed todos record when they were completed ({@code completed_at}) and can be moved
+ * to the {@code todo_archive} table, which keeps them compressed with {@link TodoArchiveCodec}.
+ * Archiving goes list by list through the view of each list, so the counters of open
+ * views are reconciled with what was moved.
  *
  * @author <a href="http://www.sczyh30.com">Eric Zhao</a>
  */
-public class JdbcTodoService implements TodoService {
+public class JdbcTodoService implements PartitionedTodoService, ArchivingTodoService, ReplicatedTodoService {
+
+  private static final Logger logger = LoggerFactory.getLogger(JdbcTodoService.class);
 
   private final Vertx vertx;
   private final JsonObject config;
-  private final JDBCClient client;
+  private final JdbcReplicaSet clients;
+  private final String listId;
+  private final JdbcTodoService root;
+  private final Map<String, WeakReference<JdbcTodoService>> views;
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
 
   public JdbcTodoService(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
     this.config = config;
-    this.client = JDBCClient.createShared(vertx, config);
+    this.clients = new JdbcReplicaSet(vertx, config);
+    this.listId = DEFAULT_LIST;
+    this.root = this;
+    this.views = new ConcurrentHashMap<>();
+  }
+
+  private JdbcTodoService(JdbcTodoService parent, String listId) {
+    this.vertx = parent.vertx;
+    this.config = parent.config;
+    this.clients = parent.clients;
+    this.listId = listId;
+    this.root = parent;
+    this.views = parent.views;
+  }
+
+  @Override
+  public TodoService forList(String listId) {
+    return root.view(listId);
+  }
+
+  /**
+   * Get the view of a list, reusing the one still held by a caller so its counters can be
+   * reconciled after archiving.
+   */
+  private JdbcTodoService view(String listId) {
+    if (DEFAULT_LIST.equals(listId)) {
+      return root;
+    }
+    WeakReference<JdbcTodoService> ref = views.get(listId);
+    JdbcTodoService view = ref == null ? null : ref.get();
+    if (view == null) {
+      views.values().removeIf(r -> r.get() == null);
+      view = new JdbcTodoService(root, listId);
+      views.put(listId, new WeakReference<>(view));
+    }
+    return view;
+  }
+
+  @Override
+  public Completable close() {
+    return clients.close();
   }
 
   @Override
   public Completable initData() {
-    return client.rxGetConnection()
-      .flatMapCompletable(connection -> connection.rxExecute(SQL_CREATE)
-        .doOnTerminate(connection::close)
-      );
+    if (root != this) {
+      return reconcileStats();
+    }
+    long reconcileInterval = config.getLong("stats.reconcile_interval", Constants.DEFAULT_RECONCILE_INTERVAL);
+    return clients.primary().execute(SQL_CREATE)
+      .andThen(migrate())
+      .andThen(reconcileStats())
+      .doOnComplete(() -> {
+        if (reconcileInterval > 0) {
+          vertx.setPeriodic(reconcileInterval, id -> reconcileStats()
+            .subscribe(() -> {}, ex -> logger.warn("Failed to reconcile todo stats", ex)));
+        }
+      });
   }
 
   @Override
   public Single<Todo> insert(Todo todo) {
-    JsonArray params = new JsonArray().add(todo.getId())
-      .add(todo.getTitle())
-      .add(todo.isCompleted())
-      .add(todo.getOrder())
-      .add(todo.getUrl());
-    return client.rxUpdateWithParams(SQL_INSERT, params)
+    return insert(todo, System.currentTimeMillis());
+  }
+
+  private Single<Todo> insert(Todo todo, long completedAt) {
+    return clients.primary().update(SQL_INSERT, rowParams(todo, completedAt))
+      .doOnSuccess(e -> {
+        clients.markWritten(listId);
+        adjustStats(1, todo.isCompleted() ? 1 : 0);
+      })
       .map(e -> todo);
   }
 
+  @Override
+  public Completable insertAll(List<Todo> todos) {
+    if (todos.isEmpty()) {
+      return Completable.complete();
+    }
+    // the last occurrence of an id wins, as in the upsert
+    Map<Integer, Boolean> completedById = new LinkedHashMap<>();
+    todos.forEach(todo -> completedById.put(todo.getId(), todo.isCompleted()));
+    StringBuilder query = new StringBuilder(SQL_QUERY_IDS_PREFIX);
+    JsonArray queryParams = new JsonArray().add(listId);
+    int n = 0;
+    for (Integer id : completedById.keySet()) {
+      query.append(n++ == 0 ? "?" : ", ?");
+      queryParams.add(id);
+    }
+    query.append(")");
+    StringBuilder sql = new StringBuilder(SQL_UPSERT_PREFIX);
+    JsonArray params = new JsonArray();
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < todos.size(); i++) {
+      Todo todo = todos.get(i);
+      sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+      params.addAll(rowParams(todo, now));
+    }
+    sql.append(SQL_UPSERT_SUFFIX);
+    // the rows about to be replaced tell how the counters change, so a batch costs no recount
+    return clients.primary().query(query.toString(), queryParams)
+      .flatMap(existing -> clients.primary().update(sql.toString(), params)
+        .doOnSuccess(e -> {
+          clients.markWritten(listId);
+          Map<Integer, Boolean> wasCompleted = new HashMap<>();
+          existing.getRows().forEach(row -> {
+            Todo old = toTodo(row);
+            wasCompleted.put(old.getId(), old.isCompleted());
+          });
+          long totalDelta = 0;
+          long completedDelta = 0;
+          for (Map.Entry<Integer, Boolean> entry : completedById.entrySet()) {
+            Boolean was = wasCompleted.get(entry.getKey());
+            if (was == null) {
+              totalDelta++;
+            }
+            completedDelta += (entry.getValue() ? 1 : 0) - (Boolean.TRUE.equals(was) ? 1 : 0);
+          }
+          adjustStats(totalDelta, completedDelta);
+        }))
+      .toCompletable();
+  }
+
+  @Override
+  public TodoService readYourWrites() {
+    return new ForwardingTodoService(this) {
+      @Override
+      public Single<List<Todo>> getAll() {
+        return JdbcTodoService.this.getAll(true);
+      }
+
+      @Override
+      public Flowable<List<Todo>> exportAll(int batchSize) {
+        return JdbcTodoService.this.exportAll(batchSize, true);
+      }
+
+      @Override
+      public Maybe<Todo> getCertain(String todoID) {
+        return JdbcTodoService.this.getCertain(todoID, true);
+      }
+    };
+  }
+
   @Override
   public Single<List<Todo>> getAll() {
-    return client.rxQuery(SQL_QUERY_ALL)
+    return getAll(false);
+  }
+
+  private Single<List<Todo>> getAll(boolean readYourWrites) {
+    return read(readYourWrites, endpoint -> endpoint.query(SQL_QUERY_ALL, new JsonArray().add(listId)))
       .map(ar -> ar.getRows().stream()
-        .map(Todo::new)
+        .map(JdbcTodoService::toTodo)
         .collect(Collectors.toList())
       );
   }
 
+  @Override
+  public Flowable<List<Todo>> exportAll(int batchSize) {
+    return exportAll(batchSize, false);
+  }
+
+  private Flowable<List<Todo>> exportAll(int batchSize, boolean readYourWrites) {
+    return Flowable.defer(() -> {
+      // keyset pagination over the primary key
+      AtomicInteger lastId = new AtomicInteger(Integer.MIN_VALUE);
+      AtomicInteger lastSize = new AtomicInteger();
+      return Single.defer(() -> read(readYourWrites, endpoint -> endpoint.query(SQL_QUERY_PAGE,
+        new JsonArray().add(listId).add(lastId.get()).add(batchSize))))
+        .map(rs -> {
+          List<Todo> page = rs.getRows().stream()
+            .map(JdbcTodoService::toTodo)
+            .collect(Collectors.toList());
+          lastSize.set(page.size());
+          if (!page.isEmpty()) {
+            lastId.set(page.get(page.size() - 1).getId());
+          }
+          return page;
+        })
+        .repeatUntil(() -> lastSize.get() < batchSize)
+        .filter(page -> !page.isEmpty());
+    });
+  }
+
   @Override
   public Maybe<Todo> getCertain(String todoID) {
-    return client.rxQueryWithParams(SQL_QUERY, new JsonArray().add(todoID))
+    return getCertain(todoID, false);
+  }
+
+  private Maybe<Todo> getCertain(String todoID, boolean readYourWrites) {
+    JsonArray params = new JsonArray().add(listId).add(todoID);
+    return read(readYourWrites, endpoint -> endpoint.query(SQL_QUERY, params))
       .map(ResultSet::getRows)
       .toObservable()
       .flatMapIterable(e -> e)
       .singleElement()
-      .map(Todo::new);
+      .map(JdbcTodoService::toTodo)
+      .switchIfEmpty(read(readYourWrites, endpoint -> endpoint.query(SQL_QUERY_ARCHIVED, params))
+        .flatMapMaybe(JdbcTodoService::decodeArchived));
   }
 
   @Override
   public Maybe<Todo> update(String todoId, Todo newTodo) {
-    return getCertain(todoId)
+    // read-modify-write must see the latest row, so read it from the primary
+    return clients.primary().query(SQL_QUERY, new JsonArray().add(listId).add(todoId))
+      .map(ResultSet::getRows)
+      .toObservable()
+      .flatMapIterable(e -> e)
+      .singleElement()
+      .map(JdbcTodoService::toTodo)
+      .switchIfEmpty(restore(todoId))
       .flatMap(old -> {
         Todo fnTodo = old.merge(newTodo);
         int updateId = old.getId();
-        JsonArray params = new JsonArray().add(updateId)
-          .add(fnTodo.getTitle())
-          .add(fnTodo.isCompleted())
-          .add(fnTodo.getOrder())
-          .add(fnTodo.getUrl())
-          .add(updateId);
-        return client.rxUpdateWithParams(SQL_UPDATE, params)
+        // JsonArray#add rejects nulls, a todo may have no title or url
+        JsonArray params = new JsonArray(Arrays.asList(updateId, fnTodo.getTitle(), fnTodo.isCompleted(),
+          fnTodo.getOrder(), fnTodo.getUrl(), fnTodo.isCompleted(), System.currentTimeMillis(), listId, updateId));
+        return clients.primary().update(SQL_UPDATE, params)
+          .doOnSuccess(e -> {
+            clients.markWritten(listId);
+            adjustStats(0, (fnTodo.isCompleted() ? 1 : 0) - (old.isCompleted() ? 1 : 0));
+          })
           .flatMapMaybe(v -> Maybe.just(fnTodo));
       });
   }
 
   @Override
   public Completable delete(String todoId) {
-    return client.rxUpdateWithParams(SQL_DELETE, new JsonArray().add(todoId))
-      .toCompletable();
+    JsonArray params = new JsonArray().add(listId).add(todoId);
+    // the old row tells whether the completed count changes
+    return clients.primary().query(SQL_QUERY, params)
+      .flatMapCompletable(old -> clients.primary().update(SQL_DELETE, params)
+        .doOnSuccess(e -> {
+          clients.markWritten(listId);
+          if (e.getUpdated() > 0) {
+            boolean wasCompleted = old.getNumRows() > 0 && toTodo(old.getRows().get(0)).isCompleted();
+            adjustStats(-e.getUpdated(), wasCompleted ? -1 : 0);
+          }
+        })
+        .toCompletable())
+      .andThen(clients.primary().update(SQL_DELETE_ARCHIVED, params).toCompletable());
   }
 
   @Override
   public Completable deleteAll() {
-    return client.rxUpdate(SQL_DELETE_ALL).toCompletable();
+    return clients.primary().update(SQL_DELETE_ALL, new JsonArray().add(listId))
+      .doOnSuccess(e -> {
+        clients.markWritten(listId);
+        total.set(0);
+        completed.set(0);
+      })
+      .toCompletable()
+      .andThen(clients.primary().update(SQL_DELETE_ALL_ARCHIVED, new JsonArray().add(listId)).toCompletable());
+  }
+
+  @Override
+  public Single<TodoStats> getStats() {
+    return Single.just(new TodoStats(total.get(), completed.get()));
+  }
+
+  @Override
+  public Single<Integer> archiveCompleted(long completedBefore, int limit) {
+    return clients.primary().query(SQL_QUERY_ARCHIVABLE_LISTS, new JsonArray().add(completedBefore))
+      .flatMapPublisher(rs -> Flowable.fromIterable(rs.getResults()))
+      .concatMap(row -> root.view(row.getString(0)).archiveList(completedBefore, limit).toFlowable())
+      .reduce(0, Integer::sum);
+  }
+
+  /**
+   * Archive the todos of this list completed before the cutoff.
+   */
+  private Single<Integer> archiveList(long completedBefore, int limit) {
+    return clients.primary().query(SQL_QUERY_ARCHIVABLE, new JsonArray().add(listId).add(completedBefore).add(limit))
+      .flatMap(rs -> {
+        List<JsonObject> rows = rs.getRows();
+        if (rows.isEmpty()) {
+          return Single.just(0);
+        }
+        StringBuilder archive = new StringBuilder(SQL_ARCHIVE_PREFIX);
+        StringBuilder delete = new StringBuilder(SQL_DELETE_ARCHIVABLE_PREFIX);
+        StringBuilder cleanup = new StringBuilder(SQL_DELETE_STALE_ARCHIVED_PREFIX);
+        JsonArray archiveParams = new JsonArray();
+        JsonArray deleteParams = new JsonArray().add(listId);
+        JsonArray cleanupParams = new JsonArray().add(listId);
+        for (int i = 0; i < rows.size(); i++) {
+          JsonObject row = rows.get(i);
+          Todo todo = toTodo(row);
+          archive.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+          delete.append(i == 0 ? SQL_UNCHANGED_ROW : " OR " + SQL_UNCHANGED_ROW);
+          cleanup.append(i == 0 ? "?" : ", ?");
+          archiveParams.add(listId)
+            .add(todo.getId())
+            .add(row.getLong("completed_at"))
+            .add(TodoArchiveCodec.encode(todo));
+          // a row changed since it was read is kept hot, as by the Redis ARCHIVE script
+          deleteParams.addAll(new JsonArray(Arrays.asList(todo.getId(), row.getLong("completed_at"),
+            todo.getTitle(), todo.getTitle(), row.getValue("completed"), row.getValue("completed"),
+            todo.getOrder(), todo.getOrder(), todo.getUrl(), todo.getUrl())));
+          cleanupParams.add(todo.getId());
+        }
+        archive.append(SQL_ARCHIVE_SUFFIX);
+        delete.append(")");
+        cleanup.append(SQL_DELETE_STALE_ARCHIVED_SUFFIX);
+        // copy first: a crash in between leaves a todo in both tables, and the hot row wins
+        return clients.primary().update(archive.toString(), archiveParams)
+          .flatMap(e -> clients.primary().update(delete.toString(), deleteParams))
+          .flatMap(e -> {
+            clients.markWritten(listId);
+            int archived = e.getUpdated();
+            Completable dropStale = archived == rows.size() ? Completable.complete()
+              : clients.primary().update(cleanup.toString(), cleanupParams).toCompletable();
+            return dropStale.andThen(reconcileStats()).toSingleDefault(archived);
+          });
+      });
+  }
+
+  /**
+   * Move an archived todo back to the todo table, so it can be updated. It keeps its
+   * original completion time, so it ages out again on schedule.
+   */
+  private Maybe<Todo> restore(String todoId) {
+    JsonArray params = new JsonArray().add(listId).add(todoId);
+    return clients.primary().query(SQL_QUERY_ARCHIVED, params)
+      .flatMapMaybe(rs -> decodeArchived(rs)
+        .flatMap(todo -> insert(todo, toLong(rs.getResults().get(0).getValue(1)))
+          .flatMap(r -> clients.primary().update(SQL_DELETE_ARCHIVED, params))
+          .map(r -> todo)
+          .toMaybe()));
+  }
+
+  /**
+   * Map a todo row. {@code completed} is a {@code tinyint(1)}, which some drivers return as a number.
+   */
+  private static Todo toTodo(JsonObject row) {
+    Object completed = row.getValue("completed");
+    if (completed instanceof Number) {
+      row.put("completed", ((Number) completed).intValue() != 0);
+    }
+    return new Todo(row);
+  }
+
+  private static Maybe<Todo> decodeArchived(ResultSet rs) {
+    return rs.getNumRows() == 0 ? Maybe.empty()
+      : Maybe.just(TodoArchiveCodec.decode(rs.getResults().get(0).getString(0)));
+  }
+
+  private Completable reconcileStats() {
+    return clients.primary().query(SQL_STATS, new JsonArray().add(listId))
+      .doOnSuccess(rs -> {
+        JsonArray row = rs.getResults().get(0);
+        total.set(toLong(row.getValue(0)));
+        completed.set(toLong(row.getValue(1)));
+      })
+      .toCompletable();
+  }
+
+  /**
+   * Bring a table created by an older version up to date, and create the archive table.
+   */
+  private Completable migrate() {
+    return addColumnIfMissing(SQL_CHECK_LIST, clients.primary().execute(SQL_ADD_LIST))
+      // todos completed before completion times were recorded start ageing now
+      .andThen(addColumnIfMissing(SQL_CHECK_COMPLETED_AT, clients.primary().execute(SQL_ADD_COMPLETED_AT)
+        .andThen(clients.primary().update(SQL_BACKFILL_COMPLETED_AT,
+          new JsonArray().add(System.currentTimeMillis())).toCompletable())))
+      .andThen(clients.primary().execute(SQL_CREATE_ARCHIVE));
+  }
+
+  private Completable addColumnIfMissing(String check, Completable add) {
+    return clients.primary().query(check, null)
+      .toCompletable()
+      .onErrorResumeNext(ex -> {
+        logger.info("Migrating the todo table: " + check);
+        return add;
+      });
+  }
+
+  private void adjustStats(long totalDelta, long completedDelta) {
+    total.addAndGet(totalDelta);
+    completed.addAndGet(completedDelta);
+  }
+
+  /**
+   * Parameters of one todo row, built from a list as {@link JsonArray#add} rejects nulls
+   * and a todo may have no title, url or completion time.
+   */
+  private JsonArray rowParams(Todo todo, long now) {
+    return new JsonArray(Arrays.asList(listId, todo.getId(), todo.getTitle(), todo.isCompleted(),
+      todo.getOrder(), todo.getUrl(), todo.isCompleted() ? now : null));
+  }
+
+  private static long toLong(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    return value == null ? 0 : new BigDecimal(value.toString()).longValue();
+  }
+
+  /**
+   * Run a read query on a replica, retrying on the primary if the replica fails.
+   */
+  private Single<ResultSet> read(boolean readYourWrites, Function<SqlEndpoint, Single<ResultSet>> query) {
+    SqlEndpoint endpoint = clients.forRead(listId, readYourWrites);
+    if (endpoint == clients.primary()) {
+      return query.apply(endpoint);
+    }
+    return query.apply(endpoint)
+      .onErrorResumeNext(ex -> {
+        clients.markFailed(endpoint);
+        return query.apply(clients.primary());
+      });
   }
 
   private static final String SQL_CREATE = "CREATE TABLE IF NOT EXISTS `todo` (\n" +
-    "  `id` int(11) NOT NULL AUTO_INCREMENT,\n" +
+    "  `id` int(11) NOT NULL,\n" +
+    "  `list_id` varchar(64) NOT NULL DEFAULT 'default',\n" +
     "  `title` varchar(255) DEFAULT NULL,\n" +
     "  `completed` tinyint(1) DEFAULT NULL,\n" +
     "  `order` int(11) DEFAULT NULL,\n" +
     "  `url` varchar(255) DEFAULT NULL,\n" +
-    "  PRIMARY KEY (`id`) )";
+    "  `completed_at` bigint(20) DEFAULT NULL,\n" +
+    "  PRIMARY KEY (`list_id`, `id`),\n" +
+    "  KEY `idx_todo_completed_at` (`completed_at`) )";
+  private static final String SQL_CREATE_ARCHIVE = "CREATE TABLE IF NOT EXISTS `todo_archive` (\n" +
+    "  `id` int(11) NOT NULL,\n" +
+    "  `list_id` varchar(64) NOT NULL DEFAULT 'default',\n" +
+    "  `completed_at` bigint(20) DEFAULT NULL,\n" +
+    "  `data` text NOT NULL,\n" +
+    "  PRIMARY KEY (`list_id`, `id`) )";
+  private static final String SQL_CHECK_LIST = "SELECT `list_id` FROM `todo` WHERE 1 = 0";
+  private static final String SQL_ADD_LIST = "ALTER TABLE `todo`\n" +
+    "ADD COLUMN `list_id` varchar(64) NOT NULL DEFAULT 'default',\n" +
+    "MODIFY `id` int(11) NOT NULL,\n" +
+    "DROP PRIMARY KEY,\n" +
+    "ADD PRIMARY KEY (`list_id`, `id`)";
+  private static final String SQL_CHECK_COMPLETED_AT = "SELECT `completed_at` FROM `todo` WHERE 1 = 0";
+  private static final String SQL_ADD_COMPLETED_AT = "ALTER TABLE `todo`\n" +
+    "ADD COLUMN `completed_at` bigint(20) DEFAULT NULL,\n" +
+    "ADD KEY `idx_todo_completed_at` (`completed_at`)";
+  private static final String SQL_BACKFILL_COMPLETED_AT = "UPDATE `todo` SET `completed_at` = ? WHERE `completed` = 1";
   private static final String SQL_INSERT = "INSERT INTO `todo` " +
-    "(`id`, `title`, `completed`, `order`, `url`) VALUES (?, ?, ?, ?, ?)";
-  private static final String SQL_QUERY = "SELECT * FROM todo WHERE id = ?";
-  private static final String SQL_QUERY_ALL = "SELECT * FROM todo";
+    "(`list_id`, `id`, `title`, `completed`, `order`, `url`, `completed_at`) VALUES (?, ?, ?, ?, ?, ?, ?)";
+  private static final String SQL_QUERY = "SELECT * FROM todo WHERE list_id = ? AND id = ?";
+  private static final String SQL_QUERY_ALL = "SELECT * FROM todo WHERE list_id = ?";
+  private static final String SQL_QUERY_PAGE = "SELECT * FROM `todo` WHERE `list_id` = ? AND `id` > ? ORDER BY `id` LIMIT ?";
+  private static final String SQL_QUERY_IDS_PREFIX = "SELECT * FROM `todo` WHERE `list_id` = ? AND `id` IN (";
+  private static final String SQL_QUERY_ARCHIVED = "SELECT `data`, `completed_at` FROM `todo_archive` " +
+    "WHERE `list_id` = ? AND `id` = ?";
+  private static final String SQL_QUERY_ARCHIVABLE_LISTS = "SELECT DISTINCT `list_id` FROM `todo` WHERE `completed_at` < ?";
+  private static final String SQL_QUERY_ARCHIVABLE = "SELECT * FROM `todo` WHERE `list_id` = ? AND `completed_at` < ? " +
+    "ORDER BY `completed_at` LIMIT ?";
+  private static final String SQL_UPSERT_PREFIX = "INSERT INTO `todo` " +
+    "(`list_id`, `id`, `title`, `completed`, `order`, `url`, `completed_at`) VALUES ";
+  private static final String SQL_UPSERT_SUFFIX = " ON DUPLICATE KEY UPDATE " +
+    "`completed_at` = CASE WHEN VALUES(`completed`) = 1 THEN COALESCE(`completed_at`, VALUES(`completed_at`)) END, " +
+    "`title` = VALUES(`title`), `completed` = VALUES(`completed`), " +
+    "`order` = VALUES(`order`), `url` = VALUES(`url`)";
+  private static final String SQL_ARCHIVE_PREFIX = "INSERT INTO `todo_archive` " +
+    "(`list_id`, `id`, `completed_at`, `data`) VALUES ";
+  private static final String SQL_ARCHIVE_SUFFIX = " ON DUPLICATE KEY UPDATE " +
+    "`completed_at` = VALUES(`completed_at`), `data` = VALUES(`data`)";
   private static final String SQL_UPDATE = "UPDATE `todo`\n" +
     "SET\n" +
     "`id` = ?,\n" +
     "`title` = ?,\n" +
     "`completed` = ?,\n" +
     "`order` = ?,\n" +
-    "`url` = ?\n" +
-    "WHERE `id` = ?;";
-  private static final String SQL_DELETE = "DELETE FROM `todo` WHERE `id` = ?";
-  private static final String SQL_DELETE_ALL = "DELETE FROM `todo`";
+    "`url` = ?,\n" +
+    "`completed_at` = CASE WHEN ? = 1 THEN COALESCE(`completed_at`, ?) END\n" +
+    "WHERE `list_id` = ? AND `id` = ?;";
+  private static final String SQL_DELETE = "DELETE FROM `todo` WHERE `list_id` = ? AND `id` = ?";
+  private static final String SQL_DELETE_ALL = "DELETE FROM `todo` WHERE `list_id` = ?";
+  private static final String SQL_DELETE_ARCHIVED = "DELETE FROM `todo_archive` WHERE `list_id` = ? AND `id` = ?";
+  private static final String SQL_DELETE_ALL_ARCHIVED = "DELETE FROM `todo_archive` WHERE `list_id` = ?";
+  private static final String SQL_DELETE_ARCHIVABLE_PREFIX = "DELETE FROM `todo` WHERE `list_id` = ? AND (";
+  private static final String SQL_UNCHANGED_ROW = "(`id` = ? AND `completed_at` = ?" +
+    " AND (`title` = ? OR (`title` IS NULL AND ? IS NULL))" +
+    " AND (`completed` = ? OR (`completed` IS NULL AND ? IS NULL))" +
+    " AND (`order` = ? OR (`order` IS NULL AND ? IS NULL))" +
+    " AND (`url` = ? OR (`url` IS NULL AND ? IS NULL)))";
+  private static final String SQL_DELETE_STALE_ARCHIVED_PREFIX = "DELETE FROM `todo_archive` WHERE `list_id` = ? AND `id` IN (";
+  private static final String SQL_DELETE_STALE_ARCHIVED_SUFFIX = ") AND EXISTS (SELECT 1 FROM `todo` " +
+    "WHERE `todo`.`list_id` = `todo_archive`.`list_id` AND `todo`.`id` = `todo_archive`.`id`)";
+  static final String SQL_STATS = "SELECT COUNT(*), COALESCE(SUM(`completed`), 0) FROM `todo` WHERE `list_id` = ?";
 }
@@ -0,0 +1,30 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+
+/**
+ * A {@link TodoService} whose todos are partitioned by list.
+ * <p>
+ * The service itself is the {@link #DEFAULT_LIST default list}. Every other list is a
+ * view that shares the service connections but keeps its todos apart (their own
+ * Redis keys, or their own range of the partition index in JDBC), so working on one
+ * list costs in proportion to that list alone. Lists are created on first write.
+ */
+public interface PartitionedTodoService extends TodoService {
+
+  String DEFAULT_LIST = "default";
+
+  /**
+   * Get the service scoped to one list. Calling {@link #initData()} on the view only
+   * checks that list; it has to be done once before the view is used.
+   *
+   * @param listId list id
+   * @return the service of the list
+   */
+  TodoService forList(String listId);
+
+  /**
+   * Close the connections shared by the service and all its lists.
+   */
+  Completable close();
+}
@@ -0,0 +1,52 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Single;
+import io.vertx.core.json.JsonArray;
+import io.vertx.reactivex.redis.RedisClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * A Lua script run with {@code EVALSHA}, falling back to {@code EVAL}
+ * (which also caches the script on the server) when the server does not know it yet.
+ */
+final class RedisScript {
+
+  private final String source;
+  private final String sha;
+
+  RedisScript(String source) {
+    this.source = source;
+    this.sha = sha1(source);
+  }
+
+  String source() {
+    return source;
+  }
+
+  Single<JsonArray> run(RedisClient redis, List<String> keys, List<String> args) {
+    return redis.rxEvalsha(sha, keys, args)
+      .onErrorResumeNext(ex -> {
+        if (ex.getMessage() != null && ex.getMessage().startsWith("NOSCRIPT")) {
+          return redis.rxEval(source, keys, args);
+        }
+        return Single.error(ex);
+      });
+  }
+
+  private static String sha1(String text) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(40);
+      for (byte b : digest) {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
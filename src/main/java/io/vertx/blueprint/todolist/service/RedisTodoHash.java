@@ -0,0 +1,289 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoStats;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.reactivex.redis.RedisClient;
+import io.vertx.redis.op.RangeLimitOptions;
+import io.vertx.redis.op.ScanOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * One Redis hash of todos together with its bookkeeping keys:
+ * <ul>
+ * <li>{@code <key>} - the todos, as JSON by id</li>
+ * <li>{@code <key>:stats} - {@code total} and {@code completed} counters</li>
+ * <li>{@code <key>:completed} - ids of completed todos, scored by completion time</li>
+ * <li>{@code <key>:archive} - archived todos, encoded with {@link TodoArchiveCodec}</li>
+ * </ul>
+ * All writes go through Lua scripts so that the keys change atomically. Writing or
+ * deleting a todo also drops its archived copy, so an archived todo that is updated
+ * comes back to the hot hash.
+ */
+final class RedisTodoHash {
+
+  private static final String FIELD_TOTAL = "total";
+  private static final String FIELD_COMPLETED = "completed";
+  private static final int SCAN_COUNT = 500;
+
+  /**
+   * KEYS: hash, stats, completed, archive. ARGV: now, then (id, json, completed flag) triples.
+   */
+  static final RedisScript UPSERT = new RedisScript(
+    "local dt, dc = 0, 0\n" +
+      "for i = 2, #ARGV, 3 do\n" +
+      "  local id = ARGV[i]\n" +
+      "  if redis.call('HSET', KEYS[1], id, ARGV[i + 1]) == 1 then dt = dt + 1 end\n" +
+      "  redis.call('HDEL', KEYS[4], id)\n" +
+      "  local was = redis.call('ZSCORE', KEYS[3], id)\n" +
+      "  if ARGV[i + 2] == '1' then\n" +
+      "    if not was then\n" +
+      "      redis.call('ZADD', KEYS[3], ARGV[1], id)\n" +
+      "      dc = dc + 1\n" +
+      "    end\n" +
+      "  elseif was then\n" +
+      "    redis.call('ZREM', KEYS[3], id)\n" +
+      "    dc = dc - 1\n" +
+      "  end\n" +
+      "end\n" +
+      "if dt ~= 0 then redis.call('HINCRBY', KEYS[2], 'total', dt) end\n" +
+      "if dc ~= 0 then redis.call('HINCRBY', KEYS[2], 'completed', dc) end\n" +
+      "return {dt, dc}\n");
+
+  /**
+   * KEYS: hash, stats, completed, archive. ARGV: ids.
+   */
+  static final RedisScript DELETE = new RedisScript(
+    "local dt, dc = 0, 0\n" +
+      "for i = 1, #ARGV do\n" +
+      "  redis.call('HDEL', KEYS[4], ARGV[i])\n" +
+      "  if redis.call('HDEL', KEYS[1], ARGV[i]) == 1 then\n" +
+      "    dt = dt - 1\n" +
+      "    dc = dc - redis.call('ZREM', KEYS[3], ARGV[i])\n" +
+      "  end\n" +
+      "end\n" +
+      "if dt ~= 0 then redis.call('HINCRBY', KEYS[2], 'total', dt) end\n" +
+      "if dc ~= 0 then redis.call('HINCRBY', KEYS[2], 'completed', dc) end\n" +
+      "return {dt, dc}\n");
+
+  /**
+   * KEYS: hash, stats, completed, archive. ARGV: cutoff, then (id, expected json, archived data) triples.
+   * A todo is only archived if it is still completed since before the cutoff and unchanged.
+   */
+  static final RedisScript ARCHIVE = new RedisScript(
+    "local n = 0\n" +
+      "for i = 2, #ARGV, 3 do\n" +
+      "  local id = ARGV[i]\n" +
+      "  local since = redis.call('ZSCORE', KEYS[3], id)\n" +
+      "  if since and tonumber(since) <= tonumber(ARGV[1])\n" +
+      "      and redis.call('HGET', KEYS[1], id) == ARGV[i + 1] then\n" +
+      "    redis.call('HSET', KEYS[4], id, ARGV[i + 2])\n" +
+      "    redis.call('HDEL', KEYS[1], id)\n" +
+      "    redis.call('ZREM', KEYS[3], id)\n" +
+      "    n = n + 1\n" +
+      "  end\n" +
+      "end\n" +
+      "if n ~= 0 then\n" +
+      "  redis.call('HINCRBY', KEYS[2], 'total', -n)\n" +
+      "  redis.call('HINCRBY', KEYS[2], 'completed', -n)\n" +
+      "end\n" +
+      "return {n}\n");
+
+  /**
+   * KEYS: hash, stats, completed, archive. ARGV: now, then ids of completed todos to record if missing.
+   */
+  static final RedisScript BACKFILL = new RedisScript(
+    "for i = 2, #ARGV do\n" +
+      "  if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 1 then\n" +
+      "    redis.call('ZADD', KEYS[3], 'NX', ARGV[1], ARGV[i])\n" +
+      "  end\n" +
+      "end\n" +
+      "return {#ARGV - 1}\n");
+
+  /**
+   * KEYS: hash, stats, completed, archive. Resets the counters from the hash and completed set sizes.
+   * The counters of an empty hash are deleted rather than set to zero, so that reconciling
+   * a list that was never written leaves no keys behind.
+   */
+  static final RedisScript RECONCILE = new RedisScript(
+    "local total = redis.call('HLEN', KEYS[1])\n" +
+      "if total == 0 then\n" +
+      "  redis.call('DEL', KEYS[2], KEYS[3])\n" +
+      "  return {0, 0}\n" +
+      "end\n" +
+      "local completed = redis.call('ZCARD', KEYS[3])\n" +
+      "redis.call('HSET', KEYS[2], 'total', total)\n" +
+      "redis.call('HSET', KEYS[2], 'completed', completed)\n" +
+      "return {total, completed}\n");
+
+  private final RedisClient redis;
+  private final String key;
+  private final List<String> keys;
+
+  RedisTodoHash(RedisClient redis, String key) {
+    this.redis = redis;
+    this.key = key;
+    this.keys = Collections.unmodifiableList(Arrays.asList(key, key + ":stats", key + ":completed", key + ":archive"));
+  }
+
+  Completable putAll(List<Todo> todos) {
+    if (todos.isEmpty()) {
+      return Completable.complete();
+    }
+    List<String> args = new ArrayList<>(1 + todos.size() * 3);
+    args.add(String.valueOf(System.currentTimeMillis()));
+    for (Todo todo : todos) {
+      args.add(String.valueOf(todo.getId()));
+      args.add(Json.encodePrettily(todo));
+      args.add(todo.isCompleted() ? "1" : "0");
+    }
+    return UPSERT.run(redis, keys, args).toCompletable();
+  }
+
+  Maybe<Todo> get(String todoId) {
+    // a missing field comes back as a null value rather than an empty result
+    return redis.rxHget(key, todoId)
+      .toMaybe()
+      .filter(Objects::nonNull)
+      .map(Todo::new);
+  }
+
+  Maybe<Todo> getArchived(String todoId) {
+    return redis.rxHget(keys.get(3), todoId)
+      .toMaybe()
+      .filter(Objects::nonNull)
+      .map(TodoArchiveCodec::decode);
+  }
+
+  /**
+   * Move up to {@code limit} todos completed before {@code cutoff} to the archive.
+   *
+   * @return number of archived todos
+   */
+  Single<Integer> archive(long cutoff, int limit) {
+    RangeLimitOptions range = new RangeLimitOptions();
+    range.setLimit(0, limit);
+    return redis.rxZrangebyscore(keys.get(2), "-inf", String.valueOf(cutoff), range)
+      .flatMap(ids -> {
+        if (ids.isEmpty()) {
+          return Single.just(0);
+        }
+        List<String> idList = ids.stream().map(Object::toString).collect(Collectors.toList());
+        return redis.rxHmget(key, idList)
+          .flatMap(values -> {
+            List<String> args = new ArrayList<>(1 + idList.size() * 3);
+            args.add(String.valueOf(cutoff));
+            for (int i = 0; i < idList.size(); i++) {
+              String json = values.getString(i);
+              if (json != null) {
+                args.add(idList.get(i));
+                args.add(json);
+                args.add(TodoArchiveCodec.encode(new Todo(json)));
+              }
+            }
+            return args.size() == 1 ? Single.just(0)
+              : ARCHIVE.run(redis, keys, args).map(r -> r.getInteger(0));
+          });
+      });
+  }
+
+  Single<List<Todo>> values() {
+    return redis.rxHvals(key)
+      .map(e -> decode(e, false));
+  }
+
+  /**
+   * Iterate over the hash with {@code HSCAN}, one page at a time and only as fast as pages are requested.
+   */
+  Flowable<List<Todo>> scan(int count) {
+    return Flowable.defer(() -> {
+      AtomicReference<String> cursor = new AtomicReference<>("0");
+      ScanOptions options = new ScanOptions().setCount(count);
+      return Single.defer(() -> redis.rxHscan(key, cursor.get(), options))
+        .map(page -> {
+          cursor.set(page.getString(0));
+          return decode(page.getJsonArray(1), true);
+        })
+        .repeatUntil(() -> "0".equals(cursor.get()));
+    });
+  }
+
+  /**
+   * Find the todo hashes whose key matches a pattern and that have completed todos, with {@code SCAN}.
+   */
+  static Flowable<String> scanKeys(RedisClient redis, String pattern) {
+    return Flowable.defer(() -> {
+      AtomicReference<String> cursor = new AtomicReference<>("0");
+      ScanOptions options = new ScanOptions().setMatch(pattern + ":completed").setCount(SCAN_COUNT);
+      return Single.defer(() -> redis.rxScan(cursor.get(), options))
+        .map(page -> {
+          cursor.set(page.getString(0));
+          return page.getJsonArray(1);
+        })
+        .repeatUntil(() -> "0".equals(cursor.get()))
+        .flatMapIterable(page -> page)
+        .map(k -> k.toString().substring(0, k.toString().length() - ":completed".length()));
+    });
+  }
+
+  Completable remove(String todoId) {
+    return DELETE.run(redis, keys, Collections.singletonList(todoId)).toCompletable();
+  }
+
+  Completable clear() {
+    return redis.rxDelMany(keys).toCompletable();
+  }
+
+  Single<TodoStats> stats() {
+    return redis.rxHmget(keys.get(1), Arrays.asList(FIELD_TOTAL, FIELD_COMPLETED))
+      .map(r -> new TodoStats(parseCount(r.getValue(0)), parseCount(r.getValue(1))));
+  }
+
+  /**
+   * Reset the counters from the data. On first use (no counters yet) the completed set
+   * is backfilled from a scan of the hash, so data written before counters existed is counted.
+   */
+  Single<TodoStats> reconcile() {
+    return redis.rxExists(keys.get(1))
+      .flatMapCompletable(exists -> exists > 0 ? Completable.complete() : backfill())
+      .andThen(RECONCILE.run(redis, keys, Collections.emptyList()))
+      .map(r -> new TodoStats(r.getLong(0), r.getLong(1)));
+  }
+
+  private Completable backfill() {
+    return scan(SCAN_COUNT)
+      .concatMap(page -> {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(System.currentTimeMillis()));
+        page.stream()
+          .filter(todo -> todo.isCompleted())
+          .forEach(todo -> args.add(String.valueOf(todo.getId())));
+        return args.size() == 1 ? Flowable.<JsonArray>empty() : BACKFILL.run(redis, keys, args).toFlowable();
+      })
+      .ignoreElements();
+  }
+
+  private static List<Todo> decode(JsonArray array, boolean pairs) {
+    List<Todo> todos = new ArrayList<>(pairs ? array.size() / 2 : array.size());
+    for (int i = pairs ? 1 : 0; i < array.size(); i += pairs ? 2 : 1) {
+      todos.add(new Todo(array.getString(i)));
+    }
+    return todos;
+  }
+
+  private static long parseCount(Object value) {
+    return value == null ? 0 : Long.parseLong(value.toString());
+  }
+}
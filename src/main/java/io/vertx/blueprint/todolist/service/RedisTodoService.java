@@ -1,59 +1,117 @@
 package io.vertx.blueprint.todolist.service;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
 import io.vertx.blueprint.todolist.Constants;
 import io.vertx.blueprint.todolist.entity.Todo;
 
-import io.vertx.core.json.Json;
+import io.vertx.blueprint.todolist.entity.TodoStats;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
 import io.vertx.reactivex.core.Vertx;
 import io.vertx.reactivex.redis.RedisClient;
 import io.vertx.redis.RedisOptions;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
 
 /**
  * Redis implementation of {@link TodoService}.
+ * <p>
+ * The default list lives in {@code VERT_TODO}, any other list in its own hash
+ * {@code VERT_TODO:list:<listId>} (with its own stats, completed and archive keys).
  *
  * @author <a href="http://www.sczyh30.com">Eric Zhao</a>
  */
-public class RedisTodoService implements TodoService {
+public class RedisTodoService implements PartitionedTodoService, ArchivingTodoService {
+
+  private static final Logger logger = LoggerFactory.getLogger(RedisTodoService.class);
 
   private final Vertx vertx;
   private final RedisOptions config;
   private final RedisClient redis;
+  private final RedisTodoHash todos;
+  private final RedisTodoService root;
+  private final long reconcileInterval;
 
   public RedisTodoService(Vertx vertx, RedisOptions config) {
+    this(vertx, config, Constants.DEFAULT_RECONCILE_INTERVAL);
+  }
+
+  public RedisTodoService(Vertx vertx, RedisOptions config, long reconcileInterval) {
     this.vertx = vertx;
     this.config = config;
     this.redis = RedisClient.create(vertx, config);
+    this.todos = new RedisTodoHash(redis, Constants.REDIS_TODO_KEY);
+    this.root = this;
+    this.reconcileInterval = reconcileInterval;
+  }
+
+  private RedisTodoService(RedisTodoService parent, String listId) {
+    this.vertx = parent.vertx;
+    this.config = parent.config;
+    this.redis = parent.redis;
+    this.todos = new RedisTodoHash(redis, listKey(listId));
+    this.root = parent;
+    this.reconcileInterval = parent.reconcileInterval;
+  }
+
+  static String listKey(String listId) {
+    return DEFAULT_LIST.equals(listId) ? Constants.REDIS_TODO_KEY : Constants.REDIS_TODO_KEY + ":list:" + listId;
+  }
+
+  @Override
+  public TodoService forList(String listId) {
+    return DEFAULT_LIST.equals(listId) ? root : new RedisTodoService(root, listId);
+  }
+
+  @Override
+  public Completable close() {
+    return redis.rxClose();
   }
 
   @Override
   public Completable initData() {
+    if (root != this) {
+      // other lists are created on first write, only their counters need checking
+      return todos.reconcile().toCompletable();
+    }
     Todo sample = new Todo(Math.abs(ThreadLocalRandom.current().nextInt(0, Integer.MAX_VALUE)),
       "Something to do...", false, 1, "todo/ex");
-    return insert(sample).toCompletable();
+    // reconcile first: the sample insert would create the counters and skip the backfill
+    return todos.reconcile().toCompletable()
+      .andThen(insert(sample).toCompletable())
+      .doOnComplete(() -> {
+        if (reconcileInterval > 0) {
+          vertx.setPeriodic(reconcileInterval, id -> todos.reconcile()
+            .subscribe(r -> {}, ex -> logger.warn("Failed to reconcile todo stats", ex)));
+        }
+      });
   }
 
   @Override
   public Single<Todo> insert(Todo todo) {
-    final String encoded = Json.encodePrettily(todo);
-    return redis.rxHset(Constants.REDIS_TODO_KEY, String.valueOf(todo.getId()), encoded)
-      .map(e -> todo);
+    return todos.putAll(Collections.singletonList(todo))
+      .toSingleDefault(todo);
+  }
+
+  @Override
+  public Completable insertAll(List<Todo> todos) {
+    return this.todos.putAll(todos);
   }
 
   @Override
   public Single<List<Todo>> getAll() {
-    return redis.rxHvals(Constants.REDIS_TODO_KEY)
-      .map(e -> e.stream()
-        .map(x -> new Todo((String) x))
-        .collect(Collectors.toList())
-      );
+    return todos.values();
+  }
+
+  @Override
+  public Flowable<List<Todo>> exportAll(int batchSize) {
+    return todos.scan(batchSize);
   }
 
   @Override
@@ -61,9 +119,8 @@ public class RedisTodoService implements TodoService {
     if (Objects.isNull(todoID)) {
       return Maybe.empty();
     }
-    return redis.rxHget(Constants.REDIS_TODO_KEY, todoID)
-      .toMaybe()
-      .map(Todo::new);
+    return todos.get(todoID)
+      .switchIfEmpty(todos.getArchived(todoID));
   }
 
   @Override
@@ -77,11 +134,25 @@ public class RedisTodoService implements TodoService {
 
   @Override
   public Completable delete(String todoId) {
-    return redis.rxHdel(Constants.REDIS_TODO_KEY, todoId).toCompletable();
+    return todos.remove(todoId);
   }
 
   @Override
   public Completable deleteAll() {
-    return redis.rxDel(Constants.REDIS_TODO_KEY).toCompletable();
+    return todos.clear();
+  }
+
+  @Override
+  public Single<TodoStats> getStats() {
+    return todos.stats();
+  }
+
+  @Override
+  public Single<Integer> archiveCompleted(long completedBefore, int limit) {
+    return Flowable.just(root.todos)
+      .concatWith(RedisTodoHash.scanKeys(redis, listKey("*"))
+        .map(key -> new RedisTodoHash(redis, key)))
+      .concatMap(hash -> hash.archive(completedBefore, limit).toFlowable())
+      .reduce(0, Integer::sum);
   }
 }
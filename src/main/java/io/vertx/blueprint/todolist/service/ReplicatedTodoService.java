@@ -0,0 +1,16 @@
+package io.vertx.blueprint.todolist.service;
+
+/**
+ * A {@link TodoService} whose reads may be served by replicas that lag behind its writes.
+ */
+public interface ReplicatedTodoService extends TodoService {
+
+  /**
+   * Get a view of the service whose reads see the writes recently made to the same list
+   * through this instance. Writes through the view are the same as through the service.
+   * Reads made this way go to the primary more often, so use it only when a client asks.
+   *
+   * @return the read-your-writes view of the service
+   */
+  TodoService readYourWrites();
+}
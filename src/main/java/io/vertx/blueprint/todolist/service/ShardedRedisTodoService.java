@@ -0,0 +1,212 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.vertx.blueprint.todolist.Constants;
+import io.vertx.blueprint.todolist.entity.Todo;
+
+import io.vertx.blueprint.todolist.entity.TodoStats;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.redis.RedisClient;
+import io.vertx.redis.RedisOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Sharded Redis implementation of {@link TodoService}.
+ * <p>
+ * Todos are spread over a fixed number of bucket hashes ({@code VERT_TODO:<bucket>})
+ * so that no single key grows with the dataset, and the buckets are placed on
+ * several Redis nodes with a {@link ConsistentHashRing}. List, delete-all and stats
+ * operations are scattered to every bucket and gathered back.
+ * <p>
+ * Every other list is bucketed the same way, in {@code VERT_TODO:list:<listId>:<bucket>},
+ * so that a large list is spread over the nodes as well.
+ */
+public class ShardedRedisTodoService implements PartitionedTodoService, ArchivingTodoService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ShardedRedisTodoService.class);
+
+  public static final int DEFAULT_BUCKETS = 64;
+
+  private final Vertx vertx;
+  private final List<RedisClient> clients;
+  private final List<String> nodeIds;
+  private final ConsistentHashRing<String> ring;
+  private final List<RedisTodoHash> buckets;
+  private final ShardedRedisTodoService root;
+  private final long reconcileInterval;
+
+  public ShardedRedisTodoService(Vertx vertx, List<RedisOptions> nodes, int buckets) {
+    this(vertx, nodes, buckets, Constants.DEFAULT_RECONCILE_INTERVAL);
+  }
+
+  public ShardedRedisTodoService(Vertx vertx, List<RedisOptions> nodes, int buckets, long reconcileInterval) {
+    if (buckets <= 0) {
+      throw new IllegalArgumentException("Bucket count must be positive");
+    }
+    this.vertx = vertx;
+    this.reconcileInterval = reconcileInterval;
+    this.root = this;
+    this.clients = nodes.stream()
+      .map(options -> RedisClient.create(vertx, options))
+      .collect(Collectors.toList());
+    this.nodeIds = nodes.stream()
+      .map(options -> options.getHost() + ":" + options.getPort())
+      .collect(Collectors.toList());
+    this.ring = new ConsistentHashRing<>(nodeIds);
+
+    this.buckets = bucketsAt(Constants.REDIS_TODO_KEY, buckets);
+  }
+
+  private ShardedRedisTodoService(ShardedRedisTodoService parent, String listId) {
+    this.vertx = parent.vertx;
+    this.reconcileInterval = parent.reconcileInterval;
+    this.root = parent;
+    this.clients = parent.clients;
+    this.nodeIds = parent.nodeIds;
+    this.ring = parent.ring;
+    this.buckets = bucketsAt(RedisTodoService.listKey(listId), parent.buckets.size());
+  }
+
+  private List<RedisTodoHash> bucketsAt(String key, int count) {
+    List<RedisTodoHash> hashes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      hashes.add(hashAt(key + ":" + i));
+    }
+    return hashes;
+  }
+
+  private RedisTodoHash hashAt(String key) {
+    return new RedisTodoHash(clients.get(nodeIds.indexOf(ring.nodeFor(key))), key);
+  }
+
+  @Override
+  public TodoService forList(String listId) {
+    return DEFAULT_LIST.equals(listId) ? root : new ShardedRedisTodoService(root, listId);
+  }
+
+  @Override
+  public Completable close() {
+    return Flowable.fromIterable(clients)
+      .flatMapCompletable(RedisClient::rxClose);
+  }
+
+  @Override
+  public Completable initData() {
+    if (root != this) {
+      // other lists are created on first write, only their counters need checking
+      return reconcile();
+    }
+    Todo sample = new Todo(Math.abs(ThreadLocalRandom.current().nextInt(0, Integer.MAX_VALUE)),
+      "Something to do...", false, 1, "todo/ex");
+    // reconcile first: the sample insert would create the counters and skip the backfill
+    return reconcile()
+      .andThen(insert(sample).toCompletable())
+      .doOnComplete(() -> {
+        if (reconcileInterval > 0) {
+          vertx.setPeriodic(reconcileInterval, id -> reconcile()
+            .subscribe(() -> {}, ex -> logger.warn("Failed to reconcile todo stats", ex)));
+        }
+      });
+  }
+
+  @Override
+  public Single<Todo> insert(Todo todo) {
+    return bucketOf(String.valueOf(todo.getId()))
+      .putAll(Collections.singletonList(todo))
+      .toSingleDefault(todo);
+  }
+
+  @Override
+  public Completable insertAll(List<Todo> todos) {
+    Map<RedisTodoHash, List<Todo>> byBucket = todos.stream()
+      .collect(Collectors.groupingBy(todo -> bucketOf(String.valueOf(todo.getId()))));
+    return Observable.fromIterable(byBucket.entrySet())
+      .flatMapCompletable(e -> e.getKey().putAll(e.getValue()));
+  }
+
+  @Override
+  public Single<List<Todo>> getAll() {
+    return Observable.fromIterable(buckets)
+      .flatMapSingle(RedisTodoHash::values)
+      .flatMapIterable(e -> e)
+      .toList();
+  }
+
+  @Override
+  public Flowable<List<Todo>> exportAll(int batchSize) {
+    return Flowable.fromIterable(buckets)
+      .concatMap(bucket -> bucket.scan(batchSize));
+  }
+
+  @Override
+  public Maybe<Todo> getCertain(String todoID) {
+    if (Objects.isNull(todoID)) {
+      return Maybe.empty();
+    }
+    RedisTodoHash bucket = bucketOf(todoID);
+    return bucket.get(todoID)
+      .switchIfEmpty(bucket.getArchived(todoID));
+  }
+
+  @Override
+  public Maybe<Todo> update(String todoId, Todo newTodo) {
+    return getCertain(todoId)
+      .map(old -> old.merge(newTodo))
+      .flatMap(e -> insert(e)
+        .flatMapMaybe(r -> Maybe.just(e))
+      );
+  }
+
+  @Override
+  public Completable delete(String todoId) {
+    return bucketOf(todoId).remove(todoId);
+  }
+
+  @Override
+  public Completable deleteAll() {
+    return Observable.fromIterable(buckets)
+      .flatMapCompletable(RedisTodoHash::clear);
+  }
+
+  @Override
+  public Single<TodoStats> getStats() {
+    return Observable.fromIterable(buckets)
+      .flatMapSingle(RedisTodoHash::stats)
+      .reduce(new TodoStats(0, 0), TodoStats::plus);
+  }
+
+  @Override
+  public Single<Integer> archiveCompleted(long completedBefore, int limit) {
+    Flowable<RedisTodoHash> lists = Flowable.range(0, clients.size())
+      .concatMap(i -> RedisTodoHash.scanKeys(clients.get(i), RedisTodoService.listKey("*"))
+        // skip stale keys the ring does not place on this node
+        .filter(key -> ring.nodeFor(key).equals(nodeIds.get(i)))
+        .map(this::hashAt));
+    return Flowable.fromIterable(root.buckets)
+      .concatWith(lists)
+      .concatMap(hash -> hash.archive(completedBefore, limit).toFlowable())
+      .reduce(0, Integer::sum);
+  }
+
+  private Completable reconcile() {
+    return Observable.fromIterable(buckets)
+      .flatMapCompletable(bucket -> bucket.reconcile().toCompletable());
+  }
+
+  private RedisTodoHash bucketOf(String todoId) {
+    return buckets.get(Math.floorMod(ConsistentHashRing.hash(todoId), buckets.size()));
+  }
+}
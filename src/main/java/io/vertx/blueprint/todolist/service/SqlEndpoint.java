@@ -0,0 +1,26 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.UpdateResult;
+
+/**
+ * A database endpoint (the primary or one replica) that runs SQL asynchronously.
+ * Results are always delivered on the calling Vert.x context.
+ */
+interface SqlEndpoint {
+
+  Single<ResultSet> query(String sql, JsonArray params);
+
+  Single<UpdateResult> update(String sql, JsonArray params);
+
+  Completable execute(String sql);
+
+  /**
+   * Release the connections and threads of the endpoint.
+   */
+  Completable close();
+
+}
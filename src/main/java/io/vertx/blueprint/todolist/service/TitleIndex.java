@@ -0,0 +1,202 @@
+package io.vertx.blueprint.todolist.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index from title tokens to todo ids.
+ * <p>
+ * Titles are split into lower-cased runs of letters and digits. Each token maps to a
+ * posting list kept as a sorted {@code int[]}. A query matches the todos whose title
+ * contains every query token; the last token also matches as a prefix, so results can
+ * be refined as the user types.
+ * <p>
+ * This class is not thread-safe, it is meant to be used from a single Vert.x context.
+ */
+public class TitleIndex {
+
+  private final TreeMap<String, Postings> terms = new TreeMap<>();
+  private final Map<Integer, String[]> tokensById = new HashMap<>();
+
+  /**
+   * Index (or re-index) a todo title.
+   */
+  public void put(int id, String title) {
+    remove(id);
+    String[] tokens = tokenize(title).toArray(new String[0]);
+    if (tokens.length == 0) {
+      return;
+    }
+    tokensById.put(id, tokens);
+    for (String token : tokens) {
+      terms.computeIfAbsent(token, t -> new Postings()).add(id);
+    }
+  }
+
+  public void remove(int id) {
+    String[] tokens = tokensById.remove(id);
+    if (tokens == null) {
+      return;
+    }
+    for (String token : tokens) {
+      Postings postings = terms.get(token);
+      if (postings != null && postings.remove(id) && postings.size == 0) {
+        terms.remove(token);
+      }
+    }
+  }
+
+  public void clear() {
+    terms.clear();
+    tokensById.clear();
+  }
+
+  public int size() {
+    return tokensById.size();
+  }
+
+  /**
+   * Find the todos matching a query.
+   *
+   * @param query search text
+   * @param limit maximum number of ids to return
+   * @return matching ids in ascending order
+   */
+  public int[] search(String query, int limit) {
+    List<String> tokens = new ArrayList<>(tokenize(query));
+    if (tokens.isEmpty() || limit <= 0) {
+      return new int[0];
+    }
+    String prefix = tokens.remove(tokens.size() - 1);
+    int[] result = null;
+    for (String token : tokens) {
+      Postings postings = terms.get(token);
+      if (postings == null) {
+        return new int[0];
+      }
+      result = result == null ? postings.toArray() : intersect(result, postings.ids, postings.size);
+    }
+    int[] prefixIds = prefixIds(prefix);
+    result = result == null ? prefixIds : intersect(result, prefixIds, prefixIds.length);
+    return result.length > limit ? Arrays.copyOf(result, limit) : result;
+  }
+
+  private int[] prefixIds(String prefix) {
+    SortedMap<String, Postings> range = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+    if (range.size() == 1) {
+      return range.values().iterator().next().toArray();
+    }
+    int total = 0;
+    for (Postings postings : range.values()) {
+      total += postings.size;
+    }
+    int[] all = new int[total];
+    int n = 0;
+    for (Postings postings : range.values()) {
+      System.arraycopy(postings.ids, 0, all, n, postings.size);
+      n += postings.size;
+    }
+    Arrays.sort(all);
+    // drop duplicates of todos matching several expansions of the prefix
+    int unique = 0;
+    for (int i = 0; i < all.length; i++) {
+      if (i == 0 || all[i] != all[i - 1]) {
+        all[unique++] = all[i];
+      }
+    }
+    return Arrays.copyOf(all, unique);
+  }
+
+  private static int[] intersect(int[] a, int[] b, int bSize) {
+    int[] out = new int[Math.min(a.length, bSize)];
+    int i = 0, j = 0, n = 0;
+    while (i < a.length && j < bSize) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        out[n++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(out, n);
+  }
+
+  static Set<String> tokenize(String text) {
+    Set<String> tokens = new LinkedHashSet<>();
+    if (text == null) {
+      return tokens;
+    }
+    String lower = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lower.length(); i++) {
+      boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+      if (word && start < 0) {
+        start = i;
+      } else if (!word && start >= 0) {
+        tokens.add(lower.substring(start, i));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Sorted, growable list of ids.
+   */
+  private static final class Postings {
+    private int[] ids = new int[4];
+    private int size;
+
+    void add(int id) {
+      // ids mostly grow, so appending is the common case
+      if (size == 0 || ids[size - 1] < id) {
+        ensureCapacity();
+        ids[size++] = id;
+        return;
+      }
+      int idx = Arrays.binarySearch(ids, 0, size, id);
+      if (idx >= 0) {
+        return;
+      }
+      idx = -idx - 1;
+      ensureCapacity();
+      System.arraycopy(ids, idx, ids, idx + 1, size - idx);
+      ids[idx] = id;
+      size++;
+    }
+
+    boolean remove(int id) {
+      int idx = Arrays.binarySearch(ids, 0, size, id);
+      if (idx < 0) {
+        return false;
+      }
+      System.arraycopy(ids, idx + 1, ids, idx, size - idx - 1);
+      size--;
+      if (ids.length > 16 && size < ids.length / 4) {
+        ids = Arrays.copyOf(ids, ids.length / 2);
+      }
+      return true;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(ids, size);
+    }
+
+    private void ensureCapacity() {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+      }
+    }
+  }
+}
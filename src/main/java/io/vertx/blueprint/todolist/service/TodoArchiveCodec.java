@@ -0,0 +1,76 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.core.json.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact encoding of archived todos.
+ * <p>
+ * A todo is a small JSON document, too small for a generic compressor to find much to
+ * work with, so it is deflated against a preset dictionary of the field names and common
+ * values. The result is stored as Base64 text, prefixed with a format version, so that
+ * both the Redis and JDBC archives can keep it in a string column or hash field.
+ */
+final class TodoArchiveCodec {
+
+  private static final char VERSION = '1';
+  private static final byte[] DICTIONARY = ("\"url\":\"http://localhost:8082/todos/\"," +
+    "\"order\":0,\"completed\":false,\"completed\":true,\"title\":\"\",{\"id\":")
+    .getBytes(StandardCharsets.UTF_8);
+
+  private TodoArchiveCodec() {}
+
+  static String encode(Todo todo) {
+    byte[] json = Json.encode(todo).getBytes(StandardCharsets.UTF_8);
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    try {
+      deflater.setDictionary(DICTIONARY);
+      deflater.setInput(json);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+      byte[] chunk = new byte[256];
+      while (!deflater.finished()) {
+        out.write(chunk, 0, deflater.deflate(chunk));
+      }
+      return VERSION + Base64.getEncoder().withoutPadding().encodeToString(out.toByteArray());
+    } finally {
+      deflater.end();
+    }
+  }
+
+  static Todo decode(String data) {
+    if (data.isEmpty() || data.charAt(0) != VERSION) {
+      throw new IllegalArgumentException("Unknown archive format");
+    }
+    byte[] compressed = Base64.getDecoder().decode(data.substring(1));
+    // raw deflate needs one byte of padding past the end of the input
+    byte[] input = new byte[compressed.length + 1];
+    System.arraycopy(compressed, 0, input, 0, compressed.length);
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setDictionary(DICTIONARY);
+      inflater.setInput(input);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+      byte[] chunk = new byte[256];
+      while (!inflater.finished()) {
+        int n = inflater.inflate(chunk);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IllegalArgumentException("Truncated archive data");
+        }
+        out.write(chunk, 0, n);
+      }
+      return new Todo(new String(out.toByteArray(), StandardCharsets.UTF_8));
+    } catch (DataFormatException ex) {
+      throw new IllegalArgumentException("Corrupt archive data", ex);
+    } finally {
+      inflater.end();
+    }
+  }
+}
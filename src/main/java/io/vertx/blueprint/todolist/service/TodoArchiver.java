@@ -0,0 +1,57 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.reactivex.core.Vertx;
+
+/**
+ * Periodically moves todos completed longer ago than a configured age to the archive
+ * tier of an {@link ArchivingTodoService}, keeping the working set bounded.
+ * <p>
+ * Every run archives at most {@code batchSize} todos per list; a backlog is worked off
+ * over the following runs. A run is skipped while the previous one is still going.
+ */
+public class TodoArchiver {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoArchiver.class);
+
+  private final Vertx vertx;
+  private final ArchivingTodoService service;
+  private final long maxAge;
+  private final int batchSize;
+  private boolean running;
+
+  /**
+   * @param maxAge    age after completion at which todos are archived, in milliseconds
+   * @param batchSize maximum number of todos archived per list and per run
+   */
+  public TodoArchiver(Vertx vertx, ArchivingTodoService service, long maxAge, int batchSize) {
+    this.vertx = vertx;
+    this.service = service;
+    this.maxAge = maxAge;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Start archiving every {@code interval} milliseconds.
+   *
+   * @return the timer id
+   */
+  public long start(long interval) {
+    return vertx.setPeriodic(interval, id -> run());
+  }
+
+  private void run() {
+    if (running) {
+      return;
+    }
+    running = true;
+    service.archiveCompleted(System.currentTimeMillis() - maxAge, batchSize)
+      .doFinally(() -> running = false)
+      .subscribe(n -> {
+        if (n > 0) {
+          logger.info("Archived " + n + " completed todos");
+        }
+      }, ex -> logger.warn("Failed to archive completed todos", ex));
+  }
+}
@@ -0,0 +1,55 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Single;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps the most recently used todo lists open.
+ * <p>
+ * Opening a list (for instance rebuilding its search index) costs in proportion to the
+ * list, so opened lists are cached and the least recently used one is closed once more
+ * than {@code maxOpen} are open. A list that fails to open is not cached.
+ * <p>
+ * This class is not thread-safe, it is meant to be used from a single Vert.x context.
+ *
+ * @param <T> type of an open list
+ */
+public class TodoListCache<T> {
+
+  public static final int DEFAULT_MAX_OPEN = 1000;
+
+  private final Function<String, Single<T>> opener;
+  private final Map<String, Single<T>> open;
+
+  /**
+   * @param maxOpen maximum number of lists kept open
+   * @param opener  opens a list
+   */
+  public TodoListCache(int maxOpen, Function<String, Single<T>> opener) {
+    this.opener = opener;
+    this.open = new LinkedHashMap<String, Single<T>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Single<T>> eldest) {
+        return size() > maxOpen;
+      }
+    };
+  }
+
+  public Single<T> get(String listId) {
+    Single<T> list = open.get(listId);
+    if (list == null) {
+      Single<T> opening = opener.apply(listId).cache();
+      open.put(listId, opening);
+      opening.subscribe(r -> {}, ex -> open.remove(listId, opening));
+      list = opening;
+    }
+    return list;
+  }
+
+  public int size() {
+    return open.size();
+  }
+}
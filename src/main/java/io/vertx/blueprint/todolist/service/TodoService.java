@@ -1,9 +1,11 @@
 package io.vertx.blueprint.todolist.service;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
 import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoStats;
 
 import java.util.List;
 
@@ -18,8 +20,12 @@ public interface TodoService {
 
   Single<Todo> insert(Todo todo);
 
+  Completable insertAll(List<Todo> todos);
+
   Single<List<Todo>> getAll();
 
+  Flowable<List<Todo>> exportAll(int batchSize);
+
   Maybe<Todo> getCertain(String todoID);
 
   Maybe<Todo> update(String todoId, Todo newTodo);
@@ -28,4 +34,6 @@ public interface TodoService {
 
   Completable deleteAll();
 
+  Single<TodoStats> getStats();
+
 }
@@ -0,0 +1,304 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.jdbc.JDBCClient;
+import io.vertx.ext.jdbc.spi.DataSourceProvider;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.UpdateResult;
+import io.vertx.reactivex.core.Context;
+import io.vertx.reactivex.core.Vertx;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link SqlEndpoint} that runs the blocking driver calls on virtual threads
+ * (one per statement) instead of the Vert.x worker pool, so a slow query only parks
+ * its own virtual thread.
+ * <p>
+ * Concurrency is bounded by the connection pool: a statement must take one of
+ * {@code max_pool_size} permits before borrowing a connection, and at most
+ * {@code executor.max_waiting} statements may wait for a permit before new ones
+ * are rejected. When the JVM has no virtual threads (before Java 21), or with
+ * {@code "executor.virtual_threads": false}, a platform thread pool of the connection
+ * pool size is used instead. That is the default for drivers that block while holding a
+ * monitor (H2, MySQL Connector/J before 9): up to Java 23 such a driver pins the carrier
+ * thread, so only as many statements as there are carriers would run at once.
+ * <p>
+ * Result values are converted like {@link JDBCClient} does (temporal values as ISO-8601
+ * strings, decimals as numbers) and ISO-8601 instant parameters are bound as timestamps,
+ * so both modes return the same rows.
+ */
+class VirtualThreadSqlEndpoint implements SqlEndpoint {
+
+  private static final Logger logger = LoggerFactory.getLogger(VirtualThreadSqlEndpoint.class);
+
+  private static final int DEFAULT_MAX_WAITING = 1024;
+
+  private final Vertx vertx;
+  private final DataSourceProvider provider;
+  private final DataSource dataSource;
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final int maxWaiting;
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  VirtualThreadSqlEndpoint(Vertx vertx, JsonObject config) {
+    this.vertx = vertx;
+    try {
+      String providerClass = config.getString("provider_class", JDBCClient.DEFAULT_PROVIDER_CLASS);
+      this.provider = (DataSourceProvider) Class.forName(providerClass).newInstance();
+      this.dataSource = provider.getDataSource(config);
+      int poolSize = provider.maximumPoolSize(dataSource, config);
+      this.permits = new Semaphore(poolSize, true);
+      String driverClass = config.getString("driver_class");
+      this.executor = newExecutor(poolSize,
+        config.getBoolean("executor.virtual_threads", !pinsCarrierThreads(driverClass)));
+    } catch (ReflectiveOperationException | SQLException ex) {
+      throw new IllegalStateException("Failed to create data source", ex);
+    }
+    this.maxWaiting = config.getInteger("executor.max_waiting", DEFAULT_MAX_WAITING);
+  }
+
+  @Override
+  public Single<ResultSet> query(String sql, JsonArray params) {
+    return run(connection -> {
+      try (PreparedStatement statement = prepare(connection, sql, params);
+           java.sql.ResultSet rs = statement.executeQuery()) {
+        return toResultSet(rs);
+      }
+    });
+  }
+
+  @Override
+  public Single<UpdateResult> update(String sql, JsonArray params) {
+    return run(connection -> {
+      try (PreparedStatement statement = prepare(connection, sql, params)) {
+        return new UpdateResult(statement.executeUpdate(), new JsonArray());
+      }
+    });
+  }
+
+  @Override
+  public Completable execute(String sql) {
+    return run(connection -> {
+      try (Statement statement = connection.createStatement()) {
+        return statement.execute(sql);
+      }
+    }).toCompletable();
+  }
+
+  @Override
+  public Completable close() {
+    return Completable.create(emitter -> vertx.getDelegate().<Void>executeBlocking(future -> {
+      // statements still running finish on their own threads
+      executor.shutdown();
+      try {
+        provider.close(dataSource);
+        future.complete();
+      } catch (SQLException ex) {
+        future.fail(ex);
+      }
+    }, ar -> {
+      if (ar.succeeded()) {
+        emitter.onComplete();
+      } else {
+        emitter.onError(ar.cause());
+      }
+    }));
+  }
+
+  private <T> Single<T> run(SqlFunction<T> action) {
+    return Single.create(emitter -> {
+      Context context = vertx.getOrCreateContext();
+      if (waiting.incrementAndGet() > maxWaiting) {
+        waiting.decrementAndGet();
+        emitter.onError(new RejectedExecutionException("Too many pending queries"));
+        return;
+      }
+      executor.execute(() -> {
+        T result = null;
+        Throwable failure = null;
+        try {
+          try {
+            permits.acquire();
+          } finally {
+            waiting.decrementAndGet();
+          }
+          try (Connection connection = dataSource.getConnection()) {
+            result = action.apply(connection);
+          } finally {
+            permits.release();
+          }
+        } catch (Throwable ex) {
+          failure = ex;
+        }
+        final T r = result;
+        final Throwable f = failure;
+        context.runOnContext(v -> {
+          if (f != null) {
+            emitter.onError(f);
+          } else {
+            emitter.onSuccess(r);
+          }
+        });
+      });
+    });
+  }
+
+  private PreparedStatement prepare(Connection connection, String sql, JsonArray params) throws SQLException {
+    PreparedStatement statement = connection.prepareStatement(sql);
+    if (params != null) {
+      for (int i = 0; i < params.size(); i++) {
+        Object value = params.getValue(i);
+        statement.setObject(i + 1, value instanceof String ? toTimestampIfInstant((String) value) : value);
+      }
+    }
+    return statement;
+  }
+
+  private static Object toTimestampIfInstant(String value) {
+    // cheap check first, most strings are not timestamps
+    if (value.length() < 20 || value.charAt(10) != 'T' || value.charAt(4) != '-') {
+      return value;
+    }
+    try {
+      return Timestamp.from(Instant.from(DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(value)));
+    } catch (DateTimeParseException ex) {
+      return value;
+    }
+  }
+
+  private static ResultSet toResultSet(java.sql.ResultSet rs) throws SQLException {
+    ResultSetMetaData metaData = rs.getMetaData();
+    int columns = metaData.getColumnCount();
+    List<String> names = new ArrayList<>(columns);
+    for (int i = 1; i <= columns; i++) {
+      names.add(metaData.getColumnLabel(i));
+    }
+    List<JsonArray> rows = new ArrayList<>();
+    while (rs.next()) {
+      JsonArray row = new JsonArray();
+      for (int i = 1; i <= columns; i++) {
+        Object value = fromSql(rs.getObject(i));
+        if (value == null) {
+          row.addNull();
+        } else {
+          row.add(value);
+        }
+      }
+      rows.add(row);
+    }
+    return new ResultSet(names, rows, null);
+  }
+
+  private static Object fromSql(Object value) throws SQLException {
+    if (value == null || value instanceof Boolean || value instanceof String || value instanceof byte[]) {
+      return value;
+    }
+    if (value instanceof BigDecimal) {
+      BigDecimal decimal = (BigDecimal) value;
+      return decimal.scale() == 0 ? decimal.toBigInteger() : decimal.doubleValue();
+    }
+    if (value instanceof Number) {
+      return value;
+    }
+    if (value instanceof Time) {
+      return ((Time) value).toLocalTime().atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ISO_TIME);
+    }
+    if (value instanceof java.sql.Date) {
+      return ((java.sql.Date) value).toLocalDate().format(DateTimeFormatter.ISO_DATE);
+    }
+    if (value instanceof Timestamp) {
+      return OffsetDateTime.ofInstant(((Timestamp) value).toInstant(), ZoneOffset.UTC)
+        .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    }
+    if (value instanceof Clob) {
+      Clob clob = (Clob) value;
+      try {
+        return clob.getSubString(1, (int) clob.length());
+      } finally {
+        clob.free();
+      }
+    }
+    if (value instanceof Blob) {
+      Blob blob = (Blob) value;
+      try {
+        return blob.getBytes(1, (int) blob.length());
+      } finally {
+        blob.free();
+      }
+    }
+    return value.toString();
+  }
+
+  /**
+   * Whether a JDBC driver blocks while holding a monitor, which pins the carrier of a
+   * virtual thread: H2, and MySQL Connector/J before 9 (9.0 moved to {@code ReentrantLock}).
+   */
+  static boolean pinsCarrierThreads(String driverClass) {
+    if (driverClass == null) {
+      return false;
+    }
+    if (driverClass.startsWith("org.h2.")) {
+      return true;
+    }
+    if (driverClass.startsWith("com.mysql.")) {
+      try {
+        return ((Driver) Class.forName(driverClass).newInstance()).getMajorVersion() < 9;
+      } catch (ReflectiveOperationException | LinkageError ex) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ExecutorService newExecutor(int poolSize, boolean virtualThreads) {
+    if (virtualThreads) {
+      try {
+        // resolved reflectively as the build still targets Java 8
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException ex) {
+        logger.warn("Virtual threads are not available on this JVM, using " + poolSize + " platform threads");
+      }
+    }
+    AtomicInteger count = new AtomicInteger();
+    return Executors.newFixedThreadPool(poolSize, r -> {
+      Thread thread = new Thread(r, "todo-jdbc-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @FunctionalInterface
+  private interface SqlFunction<T> {
+    T apply(Connection connection) throws SQLException;
+  }
+}
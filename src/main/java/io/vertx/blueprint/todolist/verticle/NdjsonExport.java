@@ -0,0 +1,95 @@
+package io.vertx.blueprint.todolist.verticle;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.reactivex.core.http.HttpServerResponse;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+
+/**
+ * Streams batches of todos to an HTTP response as newline-delimited JSON.
+ * The next batch is only requested once the response write queue has room,
+ * so at most one batch is held in memory.
+ */
+class NdjsonExport implements Subscriber<List<Todo>> {
+
+  static final String CONTENT_TYPE = "application/x-ndjson";
+
+  private final HttpServerResponse response;
+  private Subscription subscription;
+  private boolean closed;
+
+  NdjsonExport(HttpServerResponse response) {
+    this.response = response;
+  }
+
+  @Override
+  public void onSubscribe(Subscription s) {
+    this.subscription = s;
+    response.closeHandler(v -> {
+      closed = true;
+      s.cancel();
+    });
+    s.request(1);
+  }
+
+  @Override
+  public void onNext(List<Todo> batch) {
+    if (closed) {
+      return;
+    }
+    writeHead();
+    Buffer buffer = Buffer.buffer(batch.size() * 128);
+    try {
+      for (Todo todo : batch) {
+        buffer.appendBytes(Json.mapper.writeValueAsBytes(todo)).appendByte((byte) '\n');
+      }
+    } catch (JsonProcessingException ex) {
+      subscription.cancel();
+      onError(ex);
+      return;
+    }
+    response.write(io.vertx.reactivex.core.buffer.Buffer.newInstance(buffer));
+    if (response.writeQueueFull()) {
+      response.drainHandler(v -> subscription.request(1));
+    } else {
+      subscription.request(1);
+    }
+  }
+
+  @Override
+  public void onError(Throwable ex) {
+    if (closed) {
+      return;
+    }
+    if (!response.headWritten()) {
+      response.setStatusCode(500)
+        .putHeader("content-type", "application/json")
+        .end(new JsonObject().put("error", ex.getMessage()).encodePrettily());
+    } else {
+      // the status line is gone, so cut the stream short to signal the failure
+      response.close();
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    if (closed) {
+      return;
+    }
+    writeHead();
+    response.end();
+  }
+
+  private void writeHead() {
+    if (!response.headWritten()) {
+      response.setChunked(true)
+        .putHeader("content-type", CONTENT_TYPE);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package io.vertx.blueprint.todolist.verticle;
+
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoParser;
+import io.vertx.blueprint.todolist.service.TodoService;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.reactivex.core.http.HttpServerRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads newline-delimited JSON todos from an HTTP request and stores them in batches.
+ * The request is paused while a batch is being written, so memory stays bounded by
+ * one batch plus one network chunk regardless of the body size. A record longer than
+ * {@code maxLineLength} bytes fails the import, so an unterminated line cannot grow the
+ * buffer without limit.
+ */
+class NdjsonImport {
+
+  private final HttpServerRequest request;
+  private final TodoService service;
+  private final int batchSize;
+  private final int maxLineLength;
+  private final UnaryOperator<Todo> prepare;
+  private final Consumer<Long> onDone;
+  private final BiConsumer<Throwable, Boolean> onFailure;
+
+  private Buffer pending = Buffer.buffer();
+  private int position;
+  /** End of the part of {@code pending} already searched for a newline. */
+  private int scanned;
+  private List<Todo> batch;
+  private long count;
+  private boolean writing;
+  private boolean ended;
+  private boolean failed;
+
+  /**
+   * @param maxLineLength maximum length of one record, in bytes
+   * @param prepare       applied to every parsed todo before it is stored
+   * @param onDone        called with the number of imported todos
+   * @param onFailure     called with the cause, and whether it was caused by bad input
+   */
+  NdjsonImport(HttpServerRequest request, TodoService service, int batchSize, int maxLineLength,
+               UnaryOperator<Todo> prepare, Consumer<Long> onDone, BiConsumer<Throwable, Boolean> onFailure) {
+    this.request = request;
+    this.service = service;
+    this.batchSize = batchSize;
+    this.maxLineLength = maxLineLength;
+    this.prepare = prepare;
+    this.onDone = onDone;
+    this.onFailure = onFailure;
+    this.batch = new ArrayList<>(batchSize);
+  }
+
+  void start() {
+    request.handler(chunk -> {
+      if (!failed) {
+        pending.appendBuffer(chunk.getDelegate());
+        drain();
+      }
+    });
+    request.endHandler(v -> {
+      ended = true;
+      drain();
+    });
+    request.exceptionHandler(this::fail);
+  }
+
+  private void drain() {
+    while (!writing && !failed) {
+      int end = indexOf('\n');
+      if ((end >= 0 ? end : pending.length()) - position > maxLineLength) {
+        reject(new DecodeException("Record " + (count + batch.size() + 1) + " is longer than " + maxLineLength + " bytes"));
+        return;
+      }
+      Buffer line;
+      if (end >= 0) {
+        line = pending.slice(position, end);
+        position = end + 1;
+      } else if (ended) {
+        line = pending.slice(position, pending.length());
+        position = pending.length();
+      } else {
+        compact();
+        return;
+      }
+      if (!add(line)) {
+        return;
+      }
+      if (batch.size() >= batchSize || (ended && position == pending.length())) {
+        flush();
+      }
+      if (ended && position == pending.length() && !writing) {
+        if (!failed) {
+          onDone.accept(count);
+        }
+        return;
+      }
+    }
+  }
+
+  private boolean add(Buffer line) {
+    if (isBlank(line)) {
+      return true;
+    }
+    try {
+      Todo todo = TodoParser.parse(line);
+      batch.add(prepare.apply(todo));
+      return true;
+    } catch (DecodeException ex) {
+      reject(new DecodeException("Record " + (count + batch.size() + 1) + ": " + ex.getMessage()));
+      return false;
+    }
+  }
+
+  private void reject(DecodeException ex) {
+    failed = true;
+    pending = Buffer.buffer();
+    position = 0;
+    scanned = 0;
+    // keep reading so that the rest of the body is discarded
+    request.resume();
+    onFailure.accept(ex, true);
+  }
+
+  private void flush() {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<Todo> toWrite = batch;
+    batch = new ArrayList<>(batchSize);
+    writing = true;
+    request.pause();
+    service.insertAll(toWrite).subscribe(() -> {
+      count += toWrite.size();
+      writing = false;
+      request.resume();
+      drain();
+    }, this::fail);
+  }
+
+  private void fail(Throwable ex) {
+    if (!failed) {
+      failed = true;
+      request.resume();
+      onFailure.accept(ex, false);
+    }
+  }
+
+  private int indexOf(char c) {
+    // bytes of the partial line were searched when their chunk arrived
+    for (int i = Math.max(position, scanned); i < pending.length(); i++) {
+      if (pending.getByte(i) == c) {
+        scanned = i + 1;
+        return i;
+      }
+    }
+    scanned = pending.length();
+    return -1;
+  }
+
+  /**
+   * Drop the consumed part of the pending buffer, keeping only the partial last line.
+   */
+  private void compact() {
+    if (position > 0) {
+      pending = pending.getBuffer(position, pending.length());
+      scanned -= position;
+      position = 0;
+    }
+  }
+
+  private static boolean isBlank(Buffer line) {
+    for (int i = 0; i < line.length(); i++) {
+      byte b = line.getByte(i);
+      if (b != ' ' && b != '\t' && b != '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
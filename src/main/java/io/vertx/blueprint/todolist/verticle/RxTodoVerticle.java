@@ -1,14 +1,32 @@
 package io.vertx.blueprint.todolist.verticle;
 
 import io.reactivex.Completable;
+import io.reactivex.Single;
 import io.vertx.blueprint.todolist.Constants;
+import io.vertx.blueprint.todolist.common.AccessLog;
+import io.vertx.blueprint.todolist.common.RateLimitHandler;
+import io.vertx.blueprint.todolist.common.RequestTiming;
 import io.vertx.blueprint.todolist.common.RestfulApiVerticle;
+import io.vertx.blueprint.todolist.common.SlowRequestLog;
 import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoChanges;
+import io.vertx.blueprint.todolist.entity.TodoParser;
+import io.vertx.blueprint.todolist.service.ArchivingTodoService;
+import io.vertx.blueprint.todolist.service.ChangeTrackingTodoService;
+import io.vertx.blueprint.todolist.service.IndexedTodoService;
+import io.vertx.blueprint.todolist.service.JdbcTodoService;
+import io.vertx.blueprint.todolist.service.PartitionedTodoService;
 import io.vertx.blueprint.todolist.service.RedisTodoService;
+import io.vertx.blueprint.todolist.service.ReplicatedTodoService;
+import io.vertx.blueprint.todolist.service.ShardedRedisTodoService;
+import io.vertx.blueprint.todolist.service.TodoArchiver;
+import io.vertx.blueprint.todolist.service.TodoListCache;
 import io.vertx.blueprint.todolist.service.TodoService;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -17,7 +35,13 @@ import io.vertx.reactivex.ext.web.RoutingContext;
 import io.vertx.reactivex.ext.web.handler.BodyHandler;
 import io.vertx.redis.RedisOptions;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Reactive verticle of todo backend service.
@@ -30,38 +54,104 @@ public class RxTodoVerticle extends RestfulApiVerticle {
 
   private static final String HOST = "0.0.0.0";
   private static final int PORT = 8082;
+  private static final int DEFAULT_SEARCH_LIMIT = 50;
+  private static final int DEFAULT_BATCH_SIZE = 500;
+  private static final int DEFAULT_MAX_LINE_BYTES = 64 * 1024;
+  private static final long DEFAULT_ARCHIVE_INTERVAL = 60000;
+  private static final String CHANGE_SEQ_HEADER = "X-Change-Seq";
+  private static final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+  private static final Pattern LIST_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
 
-  private TodoService service;
+  private PartitionedTodoService service;
+  private TodoList defaultList;
+  private TodoListCache<TodoList> lists;
+  private SlowRequestLog slowRequests;
+  private AccessLog accessLog;
+  private RateLimitHandler rateLimit;
 
   @Override
   public void start(Future<Void> startFuture) throws Exception {
+    slowRequests = new SlowRequestLog(config().getInteger("timing.buffer_size", 128),
+      config().getLong("timing.slow_ms", 100L), config().getDouble("timing.sample_rate", 1d));
+    String host = config().getString("http.address", HOST);
+    int port = config().getInteger("http.port", PORT);
+
+    openAccessLog()
+      .andThen(Completable.defer(() -> initService().andThen(createHttpServer(createRouter(), host, port))))
+      .subscribe(startFuture::complete, ex -> closeAccessLog().subscribe(() -> startFuture.fail(ex)));
+  }
+
+  private Router createRouter() {
     Router router = Router.router(vertx);
-    // Enable HTTP Body parse.
-    router.route().handler(BodyHandler.create());
+    // Enable access logging.
+    if (accessLog != null) {
+      enableAccessLog(router, accessLog);
+    }
+    // Enable per-request timing.
+    enableRequestTiming(router, slowRequests);
     // Enable CORS.
     enableCorsSupport(router);
+    // Enable per-client rate limiting.
+    rateLimit = enableRateLimiting(router);
+    // Bulk import streams the request body itself, so it goes before the body handler.
+    for (String prefix : new String[]{"", Constants.API_LIST_PREFIX}) {
+      router.post(prefix + Constants.API_IMPORT).handler(context -> {
+        // hold the body back until the list is open
+        context.request().pause();
+        withList(context, list -> handleImport(context, list));
+      });
+    }
+    // Enable HTTP Body parse.
+    router.route().handler(BodyHandler.create());
+    router.route().handler(context -> {
+      RequestTiming.mark(context, RequestTiming.Phase.PARSE);
+      context.next();
+    });
 
-    router.get(Constants.API_GET).handler(this::handleGetTodo);
-    router.get(Constants.API_LIST_ALL).handler(this::handleGetAll);
-    router.post(Constants.API_CREATE).handler(this::handleCreateTodo);
-    router.patch(Constants.API_UPDATE).handler(this::handleUpdateTodo);
-    router.delete(Constants.API_DELETE).handler(this::handleDeleteOne);
-    router.delete(Constants.API_DELETE_ALL).handler(this::handleDeleteAll);
+    // The unprefixed routes work on the default list.
+    for (String prefix : new String[]{"", Constants.API_LIST_PREFIX}) {
+      router.get(prefix + Constants.API_SEARCH).handler(inList(this::handleSearch));
+      router.get(prefix + Constants.API_STATS).handler(inList(this::handleGetStats));
+      router.get(prefix + Constants.API_EXPORT).handler(inList(this::handleExport));
+      router.get(prefix + Constants.API_GET).handler(inList(this::handleGetTodo));
+      router.get(prefix + Constants.API_LIST_ALL).handler(inList(this::handleGetAll));
+      router.post(prefix + Constants.API_CREATE).handler(inList(this::handleCreateTodo));
+      router.patch(prefix + Constants.API_UPDATE).handler(inList(this::handleUpdateTodo));
+      router.delete(prefix + Constants.API_DELETE).handler(inList(this::handleDeleteOne));
+      router.delete(prefix + Constants.API_DELETE_ALL).handler(inList(this::handleDeleteAll));
+    }
+    router.get(Constants.API_ADMIN_SLOW_REQUESTS).handler(this::handleSlowRequests);
+    router.get(Constants.API_ADMIN_ACCESS_LOG).handler(this::handleAccessLogStats);
+    return router;
+  }
 
-    String host = config().getString("http.address", HOST);
-    int port = config().getInteger("http.port", PORT);
+  /**
+   * Resolve the list a request is about, opening it if needed.
+   */
+  private void withList(RoutingContext context, Consumer<TodoList> action) {
+    String listId = context.request().getParam("listId");
+    if (listId == null || PartitionedTodoService.DEFAULT_LIST.equals(listId)) {
+      action.accept(defaultList);
+      return;
+    }
+    if (!LIST_ID.matcher(listId).matches()) {
+      badRequest(context);
+      return;
+    }
+    lists.get(listId).subscribe(action::accept, ex -> internalError(context, ex));
+  }
 
-    initService().andThen(createHttpServer(router, host, port))
-      .subscribe(startFuture::complete, startFuture::fail);
+  private Handler<RoutingContext> inList(BiConsumer<RoutingContext, TodoList> handler) {
+    return context -> withList(context, list -> handler.accept(context, list));
   }
 
-  private void handleCreateTodo(RoutingContext context) {
+  private void handleCreateTodo(RoutingContext context, TodoList list) {
     try {
-      JsonObject rawEntity = context.getBodyAsJson();
+      Todo rawEntity = TodoParser.parse(context.getBody().getDelegate());
       if (!Objects.isNull(rawEntity)) {
-        final Todo todo = wrapObject(new Todo(rawEntity), context);
+        final Todo todo = wrapObject(rawEntity, context);
         // Call async service then send response back to client.
-        sendResponse(context, service.insert(todo), Json::encodePrettily, this::created);
+        sendResponse(context, list.service.insert(todo), Json::encodePrettily, this::created);
         return;
       }
       badRequest(context);
@@ -70,50 +160,236 @@ public class RxTodoVerticle extends RestfulApiVerticle {
     }
   }
 
-  private void handleGetTodo(RoutingContext context) {
+  private void handleGetTodo(RoutingContext context, TodoList list) {
     String todoID = context.request().getParam("todoId");
     if (todoID == null) {
       badRequest(context);
       return;
     }
-    sendResponse(context, service.getCertain(todoID), Json::encodePrettily);
+    sendResponse(context, reader(context, list).getCertain(todoID), Json::encodePrettily);
+  }
+
+  private void handleGetAll(RoutingContext context, TodoList list) {
+    String since = context.request().getParam("since");
+    if (since != null) {
+      handleGetChanges(context, list, since);
+      return;
+    }
+    // taken before the read, so changes racing with it are replayed by the next sync
+    context.response().putHeader(CHANGE_SEQ_HEADER, list.changes.currentSeq());
+    sendResponse(context, reader(context, list).getAll(), Json::encodePrettily);
+  }
+
+  /**
+   * The service to read a list with: the read-your-writes view when the client asks for
+   * it with {@code X-Read-Your-Writes: true}, so that it sees its own recent writes even
+   * when reads go to replicas.
+   */
+  private TodoService reader(RoutingContext context, TodoList list) {
+    return "true".equalsIgnoreCase(context.request().getHeader(READ_YOUR_WRITES_HEADER))
+      ? list.readYourWrites : list.service;
   }
 
-  private void handleGetAll(RoutingContext context) {
-    sendResponse(context, service.getAll(), Json::encodePrettily);
+  private void handleGetChanges(RoutingContext context, TodoList list, String since) {
+    try {
+      TodoChanges changes = list.changes.changesSince(since);
+      if (changes == null) {
+        gone(context, new JsonObject()
+          .put("error", "resync_required")
+          .put("seq", list.changes.currentSeq())
+          .encodePrettily());
+        return;
+      }
+      context.response().putHeader(CHANGE_SEQ_HEADER, changes.getSeq());
+      ok(context, Json.encodePrettily(changes));
+    } catch (NumberFormatException ex) {
+      badRequest(context, ex);
+    }
   }
 
-  private void handleUpdateTodo(RoutingContext context) {
+  private void handleUpdateTodo(RoutingContext context, TodoList list) {
     try {
       String todoID = context.request().getParam("todoId");
-      final Todo newTodo = new Todo(context.getBodyAsString());
+      final Todo newTodo = TodoParser.parse(context.getBody().getDelegate());
       // handle error
-      if (todoID == null) {
+      if (todoID == null || newTodo == null) {
         badRequest(context);
         return;
       }
-      sendResponse(context, service.update(todoID, newTodo), Json::encodePrettily);
+      sendResponse(context, list.service.update(todoID, newTodo), Json::encodePrettily);
     } catch (DecodeException ex) {
       badRequest(context, ex);
     }
   }
 
-  private void handleDeleteOne(RoutingContext context) {
+  private void handleDeleteOne(RoutingContext context, TodoList list) {
     String todoID = context.request().getParam("todoId");
-    sendResponse(context, service.delete(todoID), this::noContent);
+    sendResponse(context, list.service.delete(todoID), this::noContent);
+  }
+
+  private void handleDeleteAll(RoutingContext context, TodoList list) {
+    sendResponse(context, list.service.deleteAll(), this::noContent);
+  }
+
+  private void handleGetStats(RoutingContext context, TodoList list) {
+    sendResponse(context, list.service.getStats(), Json::encodePrettily);
+  }
+
+  private void handleExport(RoutingContext context, TodoList list) {
+    int batchSize = config().getInteger("export.batch_size", DEFAULT_BATCH_SIZE);
+    reader(context, list).exportAll(batchSize).subscribe(new NdjsonExport(context.response()));
+  }
+
+  private void handleImport(RoutingContext context, TodoList list) {
+    int batchSize = config().getInteger("import.batch_size", DEFAULT_BATCH_SIZE);
+    String uri = context.request().absoluteURI();
+    String baseUrl = uri.substring(0, uri.lastIndexOf('/'));
+    int maxLineLength = config().getInteger("import.max_line_bytes", DEFAULT_MAX_LINE_BYTES);
+    new NdjsonImport(context.request(), list.service, batchSize, maxLineLength, todo -> wrapObject(todo, baseUrl),
+      n -> ok(context, new JsonObject().put("imported", n).encodePrettily()),
+      (ex, badInput) -> {
+        if (badInput) {
+          badRequest(context, ex);
+        } else {
+          internalError(context, ex);
+        }
+      }).start();
+    context.request().resume();
+  }
+
+  private void handleSearch(RoutingContext context, TodoList list) {
+    String query = context.request().getParam("q");
+    String limit = context.request().getParam("limit");
+    if (query == null) {
+      badRequest(context);
+      return;
+    }
+    try {
+      int n = limit == null ? DEFAULT_SEARCH_LIMIT : Integer.parseInt(limit);
+      sendResponse(context, list.search.search(query, n), Json::encodePrettily);
+    } catch (NumberFormatException ex) {
+      badRequest(context, ex);
+    }
+  }
+
+  private void handleSlowRequests(RoutingContext context) {
+    String limit = context.request().getParam("limit");
+    try {
+      int n = limit == null ? 20 : Integer.parseInt(limit);
+      if (n < 0) {
+        badRequest(context);
+        return;
+      }
+      ok(context, slowRequests.slowest(n).encodePrettily());
+    } catch (NumberFormatException ex) {
+      badRequest(context, ex);
+    }
+  }
+
+  private void handleAccessLogStats(RoutingContext context) {
+    if (accessLog == null) {
+      notFound(context);
+      return;
+    }
+    ok(context, accessLog.stats().encodePrettily());
+  }
+
+  @Override
+  public void stop(Future<Void> stopFuture) throws Exception {
+    Completable closeService = service == null ? Completable.complete() : service.close();
+    Completable closeRateLimit = rateLimit == null ? Completable.complete() : rateLimit.close();
+    closeRateLimit.andThen(closeService).andThen(closeAccessLog())
+      .subscribe(stopFuture::complete, stopFuture::fail);
+  }
+
+  /**
+   * Open the access log configured by {@code access_log.path}, if any. Instances of this
+   * verticle share the log of a path.
+   */
+  private Completable openAccessLog() {
+    String path = config().getString("access_log.path");
+    if (path == null) {
+      return Completable.complete();
+    }
+    // creating the directory and opening the file block
+    return vertx.<AccessLog>rxExecuteBlocking(future -> {
+      try {
+        future.complete(AccessLog.open(config().getInteger("access_log.buffer_size", 8192), path,
+          config().getLong("access_log.max_bytes", 64L * 1024 * 1024), config().getInteger("access_log.max_files", 5)));
+      } catch (IOException ex) {
+        future.fail(ex);
+      }
+    }).doOnSuccess(log -> accessLog = log).toCompletable();
   }
 
-  private void handleDeleteAll(RoutingContext context) {
-    sendResponse(context, service.deleteAll(), this::noContent);
+  private Completable closeAccessLog() {
+    if (accessLog == null) {
+      return Completable.complete();
+    }
+    AccessLog log = accessLog;
+    accessLog = null;
+    // closing waits for the writer thread to flush
+    return Completable.create(emitter -> vertx.getDelegate().<Void>executeBlocking(future -> {
+      log.release();
+      future.complete();
+    }, ar -> emitter.onComplete()));
   }
 
   private Completable initService() {
-    RedisOptions config = new RedisOptions()
-      .setHost(config().getString("redis.host", "127.0.0.1"))
-      .setPort(config().getInteger("redis.port", 6379));
-    service = new RedisTodoService(vertx, config);
+    final String serviceType = config().getString("service.type", "redis");
+    final long reconcileInterval = config().getLong("stats.reconcile_interval", Constants.DEFAULT_RECONCILE_INTERVAL);
+    logger.info("Service Type: " + serviceType);
+    switch (serviceType) {
+      case "jdbc":
+        service = new JdbcTodoService(vertx, config());
+        break;
+      case "redis-sharded":
+        List<RedisOptions> nodes = config().getJsonArray("redis.nodes", new JsonArray()).stream()
+          .map(e -> new RedisOptions((JsonObject) e))
+          .collect(Collectors.toList());
+        if (nodes.isEmpty()) {
+          return Completable.error(new IllegalStateException("No Redis nodes configured for sharding"));
+        }
+        service = new ShardedRedisTodoService(vertx, nodes,
+          config().getInteger("redis.buckets", ShardedRedisTodoService.DEFAULT_BUCKETS), reconcileInterval);
+        break;
+      case "redis":
+      default:
+        RedisOptions config = new RedisOptions()
+          .setHost(config().getString("redis.host", "127.0.0.1"))
+          .setPort(config().getInteger("redis.port", 6379));
+        service = new RedisTodoService(vertx, config, reconcileInterval);
+    }
+    lists = new TodoListCache<>(config().getInteger("lists.max_open", TodoListCache.DEFAULT_MAX_OPEN),
+      listId -> openList(service.forList(listId)));
+
+    return openList(service)
+      .doOnSuccess(list -> defaultList = list)
+      .toCompletable()
+      .doOnComplete(() -> startArchiver(service));
+  }
+
+  /**
+   * Archive todos completed longer ago than {@code archive.after_ms}, if configured.
+   */
+  private void startArchiver(TodoService service) {
+    long maxAge = config().getLong("archive.after_ms", 0L);
+    if (maxAge > 0 && service instanceof ArchivingTodoService) {
+      new TodoArchiver(vertx, (ArchivingTodoService) service, maxAge,
+        config().getInteger("archive.batch_size", DEFAULT_BATCH_SIZE))
+        .start(config().getLong("archive.interval_ms", DEFAULT_ARCHIVE_INTERVAL));
+    }
+  }
 
-    return service.initData();
+  private Single<TodoList> openList(TodoService base) {
+    IndexedTodoService search = new IndexedTodoService(base);
+    ChangeTrackingTodoService changes = new ChangeTrackingTodoService(search,
+      config().getInteger("changes.capacity", ChangeTrackingTodoService.DEFAULT_CAPACITY));
+    // reads that must see recent writes skip the decorators, which only forward reads
+    TodoService readYourWrites = base instanceof ReplicatedTodoService
+      ? ((ReplicatedTodoService) base).readYourWrites() : changes;
+    return changes.initData()
+      .toSingleDefault(new TodoList(search, changes, readYourWrites));
   }
 
   /**
@@ -124,12 +400,40 @@ public class RxTodoVerticle extends RestfulApiVerticle {
    * @return the wrapped todo entity
    */
   private Todo wrapObject(Todo todo, RoutingContext context) {
+    return wrapObject(todo, context.request().absoluteURI());
+  }
+
+  /**
+   * Wrap the todo entity with appropriate id and URL.
+   *
+   * @param todo    a todo entity
+   * @param baseUrl URL of the todo collection
+   * @return the wrapped todo entity
+   */
+  private Todo wrapObject(Todo todo, String baseUrl) {
     int id = todo.getId();
     if (id > Todo.getIncId()) {
       Todo.setIncIdWith(id);
     } else if (id == 0)
       todo.setIncId();
-    todo.setUrl(context.request().absoluteURI() + "/" + todo.getId());
+    todo.setUrl(baseUrl + "/" + todo.getId());
     return todo;
   }
+
+  /**
+   * The services of one open todo list.
+   */
+  private static final class TodoList {
+    private final TodoService service;
+    private final IndexedTodoService search;
+    private final ChangeTrackingTodoService changes;
+    private final TodoService readYourWrites;
+
+    TodoList(IndexedTodoService search, ChangeTrackingTodoService changes, TodoService readYourWrites) {
+      this.service = changes;
+      this.search = search;
+      this.changes = changes;
+      this.readYourWrites = readYourWrites;
+    }
+  }
 }
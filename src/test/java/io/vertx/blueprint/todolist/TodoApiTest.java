@@ -2,10 +2,12 @@ package io.vertx.blueprint.todolist;
 
 import io.vertx.blueprint.todolist.entity.Todo;
 
+import io.vertx.blueprint.todolist.support.EmbeddedRedisServer;
 import io.vertx.blueprint.todolist.verticle.RxTodoVerticle;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
@@ -14,12 +16,16 @@ import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 
 import org.junit.After;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+
 /**
- * Test case for Todo API
+ * Test case for Todo API, against an {@link EmbeddedRedisServer} shared by the tests.
  *
  * @author Eric Zhao
  */
@@ -27,16 +33,32 @@ import org.junit.runner.RunWith;
 public class TodoApiTest {
 
   private final static int PORT = 8084;
+  private static Vertx redisVertx;
+  private static EmbeddedRedisServer redis;
   private Vertx vertx;
 
   private final Todo todoEx = new Todo(164, "Test case...", false, 22, "http://127.0.0.1:8082/todos/164");
   private final Todo todoUp = new Todo(164, "Test case...Update!", false, 26, "http://127.0.0.1:8082/todos/164");
 
+  @BeforeClass
+  public static void beforeClass(TestContext context) {
+    redisVertx = Vertx.vertx();
+    redis = new EmbeddedRedisServer(redisVertx);
+    redis.listen(0, context.asyncAssertSuccess());
+  }
+
+  @AfterClass
+  public static void afterClass(TestContext context) {
+    redisVertx.close(context.asyncAssertSuccess());
+  }
+
   @Before
   public void before(TestContext context) {
     vertx = Vertx.vertx();
     final DeploymentOptions options = new DeploymentOptions()
-      .setConfig(new JsonObject().put("http.port", PORT));
+      .setConfig(new JsonObject().put("http.port", PORT)
+        .put("redis.port", redis.actualPort())
+        .put("import.max_line_bytes", 16 * 1024));
     // default config
     RxTodoVerticle todoVerticle = new RxTodoVerticle();
 
@@ -86,4 +108,38 @@ public class TodoApiTest {
     })).putHeader("content-type", "application/json").end(Json.encodePrettily(todo));
   }
 
-}
\ No newline at end of file
+  @Test(timeout = 3000L)
+  public void testImportRejectsOverlongRecord(TestContext context) throws Exception {
+    HttpClient client = vertx.createHttpClient();
+    Async async = context.async();
+    HttpClientRequest request = client.post(PORT, "localhost", "/todos/import", response -> {
+      context.assertEquals(400, response.statusCode());
+      client.close();
+      async.complete();
+    }).setChunked(true);
+    request.write("{\"id\":165,\"title\":\"fits\"}\n");
+    // an unterminated record arriving over many chunks is rejected before the body ends
+    char[] chunk = new char[1024];
+    Arrays.fill(chunk, 'x');
+    for (int i = 0; i < 64; i++) {
+      request.write(new String(chunk));
+    }
+  }
+
+  @Test(timeout = 3000L)
+  public void testCrossOriginClientsCanReadHeaders(TestContext context) throws Exception {
+    HttpClient client = vertx.createHttpClient();
+    Async async = context.async();
+    client.get(PORT, "localhost", "/todos", response -> {
+      context.assertEquals(200, response.statusCode());
+      String exposed = response.getHeader("Access-Control-Expose-Headers");
+      context.assertNotNull(response.getHeader("X-Change-Seq"));
+      context.assertTrue(exposed.contains("X-Change-Seq"));
+      context.assertTrue(exposed.contains("Server-Timing"));
+      context.assertEquals("*", response.getHeader("Timing-Allow-Origin"));
+      client.close();
+      async.complete();
+    }).putHeader("Origin", "http://example.com").end();
+  }
+
+}
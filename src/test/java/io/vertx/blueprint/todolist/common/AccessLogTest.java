@@ -0,0 +1,85 @@
+package io.vertx.blueprint.todolist.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link AccessLog}.
+ */
+public class AccessLogTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWritesEntriesInOrder() throws Exception {
+    File file = new File(folder.getRoot(), "access.log");
+    AccessLog log = new AccessLog(16, file.getPath(), 1024 * 1024, 2);
+    for (int i = 0; i < 10; i++) {
+      while (!log.record("GET", "/todos/:todoId", 200, 1500, i)) {
+        Thread.yield();
+      }
+    }
+    log.close();
+    List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).stream()
+      .filter(line -> !line.startsWith("#"))
+      .collect(Collectors.toList());
+    assertEquals(10, lines.size());
+    for (int i = 0; i < 10; i++) {
+      String[] fields = lines.get(i).split(" ");
+      assertEquals("GET", fields[1]);
+      assertEquals("/todos/:todoId", fields[2]);
+      assertEquals("200", fields[3]);
+      assertEquals("1", fields[4]);
+      assertEquals(String.valueOf(i), fields[5]);
+    }
+  }
+
+  @Test
+  public void testDropsWhenFullAndRollsOver() throws Exception {
+    File file = new File(folder.getRoot(), "access.log");
+    AccessLog log = new AccessLog(4, file.getPath(), 256, 2);
+    int total = 20000;
+    int accepted = 0;
+    for (int i = 0; i < total; i++) {
+      if (log.record("POST", "/todos", 201, 1000, 64)) {
+        accepted++;
+      }
+    }
+    log.close();
+    assertEquals(total - accepted, log.dropped());
+    assertEquals(accepted, log.stats().getLong("written").intValue());
+    assertTrue(new File(file.getPath() + ".1").exists());
+    assertTrue(file.length() <= 256);
+  }
+
+  @Test
+  public void testSharedPerPath() throws Exception {
+    File file = new File(folder.getRoot(), "logs/access.log");
+    AccessLog first = AccessLog.open(16, file.getPath(), 1024 * 1024, 2);
+    AccessLog second = AccessLog.open(16, new File(folder.getRoot(), "logs/../logs/access.log").getPath(), 1024 * 1024, 2);
+    assertSame(first, second);
+    first.record("GET", "/todos", 200, 1000, 0);
+    first.release();
+    // still open for the second user
+    assertTrue(second.record("GET", "/todos", 200, 1000, 0));
+    second.release();
+    assertEquals(2, second.stats().getLong("written").intValue());
+
+    AccessLog reopened = AccessLog.open(16, file.getPath(), 1024 * 1024, 2);
+    assertNotSame(first, reopened);
+    reopened.release();
+  }
+}
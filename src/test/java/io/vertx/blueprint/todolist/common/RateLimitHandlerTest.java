@@ -0,0 +1,148 @@
+package io.vertx.blueprint.todolist.common;
+
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.ext.web.Router;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Test case for {@link RateLimitHandler}.
+ */
+@RunWith(VertxUnitRunner.class)
+public class RateLimitHandlerTest {
+
+  private Vertx vertx;
+  private HttpClient client;
+  private RateLimitHandler handler;
+  private int port;
+
+  @Before
+  public void before() {
+    vertx = Vertx.vertx();
+    client = vertx.getDelegate().createHttpClient();
+  }
+
+  @After
+  public void after(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test(timeout = 5000L)
+  public void testRejectsAfterBurst(TestContext context) {
+    Async async = context.async();
+    start(context, new JsonObject().put("ratelimit.rate", 1d).put("ratelimit.burst", 3), () ->
+      send(4, i -> null, responses -> {
+        for (int i = 0; i < 3; i++) {
+          context.assertEquals(200, responses.get(i).statusCode());
+          context.assertEquals("3", responses.get(i).getHeader(RateLimitHandler.LIMIT_HEADER));
+          context.assertEquals(String.valueOf(2 - i), responses.get(i).getHeader(RateLimitHandler.REMAINING_HEADER));
+        }
+        HttpClientResponse rejected = responses.get(3);
+        context.assertEquals(429, rejected.statusCode());
+        context.assertEquals("3", rejected.getHeader(RateLimitHandler.LIMIT_HEADER));
+        context.assertEquals("0", rejected.getHeader(RateLimitHandler.REMAINING_HEADER));
+        context.assertEquals("1", rejected.getHeader(RateLimitHandler.RETRY_AFTER_HEADER));
+        async.complete();
+      }));
+  }
+
+  @Test(timeout = 5000L)
+  public void testIgnoresClientIdByDefault(TestContext context) {
+    Async async = context.async();
+    start(context, new JsonObject().put("ratelimit.rate", 1d).put("ratelimit.burst", 2), () ->
+      send(3, i -> "client-" + i, responses -> {
+        context.assertEquals(429, responses.get(2).statusCode());
+        context.assertEquals(1, handler.clients());
+        async.complete();
+      }));
+  }
+
+  @Test(timeout = 5000L)
+  public void testTrustedClientIdGetsOwnBucket(TestContext context) {
+    Async async = context.async();
+    JsonObject config = new JsonObject().put("ratelimit.rate", 1d).put("ratelimit.burst", 1)
+      .put("ratelimit.trust_client_id", true);
+    start(context, config, () ->
+      send(3, i -> i < 2 ? "client-" + i : "client-0", responses -> {
+        context.assertEquals(200, responses.get(0).statusCode());
+        context.assertEquals(200, responses.get(1).statusCode());
+        context.assertEquals(429, responses.get(2).statusCode());
+        context.assertEquals(2, handler.clients());
+        async.complete();
+      }));
+  }
+
+  @Test(timeout = 5000L)
+  public void testEvictsIdleClients(TestContext context) {
+    Async async = context.async();
+    JsonObject config = new JsonObject().put("ratelimit.rate", 1000d).put("ratelimit.burst", 10)
+      .put("ratelimit.trust_client_id", true).put("ratelimit.idle_ms", 50L);
+    start(context, config, () ->
+      send(3, i -> "client-" + i, responses -> {
+        context.assertEquals(3, handler.clients());
+        vertx.setTimer(300, id -> {
+          context.assertEquals(0, handler.clients());
+          async.complete();
+        });
+      }));
+  }
+
+  @Test(timeout = 5000L)
+  public void testCloseWithoutSharedBudget(TestContext context) {
+    Async async = context.async();
+    JsonObject config = new JsonObject().put("ratelimit.rate", 1000d).put("ratelimit.idle_ms", 50L);
+    handler = new RateLimitHandler(vertx, config);
+    handler.close().subscribe(async::complete, context::fail);
+  }
+
+  private void start(TestContext context, JsonObject config, Runnable next) {
+    handler = new RateLimitHandler(vertx, config);
+    Router router = Router.router(vertx);
+    router.route().handler(handler);
+    router.route().handler(rc -> rc.response().end());
+    vertx.createHttpServer().requestHandler(router::accept).rxListen(0, "localhost")
+      .subscribe(server -> {
+        port = server.actualPort();
+        next.run();
+      }, context::fail);
+  }
+
+  /**
+   * Send {@code count} requests one after another and collect their responses.
+   */
+  private void send(int count, IntFunction<String> clientIds, Consumer<List<HttpClientResponse>> done) {
+    send(0, count, clientIds, new CopyOnWriteArrayList<>(), done);
+  }
+
+  private void send(int i, int count, IntFunction<String> clientIds,
+                    List<HttpClientResponse> responses, Consumer<List<HttpClientResponse>> done) {
+    if (i == count) {
+      done.accept(responses);
+      return;
+    }
+    HttpClientRequest request = client.get(port, "localhost", "/todos", response -> {
+      responses.add(response);
+      response.bodyHandler(body -> send(i + 1, count, clientIds, responses, done));
+    });
+    String clientId = clientIds.apply(i);
+    if (clientId != null) {
+      request.putHeader(RateLimitHandler.CLIENT_ID_HEADER, clientId);
+    }
+    request.end();
+  }
+}
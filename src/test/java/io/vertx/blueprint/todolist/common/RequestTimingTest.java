@@ -0,0 +1,99 @@
+package io.vertx.blueprint.todolist.common;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link RequestTiming} and {@link SlowRequestLog}.
+ */
+public class RequestTimingTest {
+
+  @Test
+  public void testPhasesInOrder() throws Exception {
+    RequestTiming timing = new RequestTiming();
+    Thread.sleep(2);
+    timing.mark(RequestTiming.Phase.PARSE);
+    Thread.sleep(2);
+    timing.mark(RequestTiming.Phase.SERVICE);
+    // no encode phase: the request had nothing to convert
+    Thread.sleep(2);
+    timing.mark(RequestTiming.Phase.WRITE);
+    timing.finish();
+
+    List<String> metrics = Arrays.stream(timing.toServerTiming().split(", "))
+      .map(metric -> metric.substring(0, metric.indexOf(';')))
+      .collect(Collectors.toList());
+    assertEquals(Arrays.asList("parse", "service", "write", "total"), metrics);
+
+    JsonObject json = timing.toJson();
+    assertEquals(0, json.getDouble("encode"), 0);
+    double phases = json.getDouble("parse") + json.getDouble("service") + json.getDouble("write");
+    assertTrue(json.getDouble("parse") >= 2);
+    assertTrue(phases <= json.getDouble("total") + 0.001);
+  }
+
+  @Test
+  public void testRecordsOnlySlowRequests() throws Exception {
+    SlowRequestLog log = new SlowRequestLog(8, 5, 1);
+    assertFalse(log.offer("GET", "/todos", 200, finished(0)));
+    assertTrue(log.offer("GET", "/todos/1", 200, finished(10)));
+    assertEquals(1, log.slowest(10).size());
+
+    SlowRequestLog none = new SlowRequestLog(8, 0, 0);
+    assertFalse(none.offer("GET", "/todos", 200, finished(1)));
+    assertEquals(0, none.slowest(10).size());
+  }
+
+  @Test
+  public void testSlowestFirstWithinCapacity() throws Exception {
+    SlowRequestLog log = new SlowRequestLog(2, 0, 1);
+    log.offer("GET", "/todos/1", 200, finished(1));
+    log.offer("POST", "/todos", 201, finished(20));
+    log.offer("DELETE", "/todos/2", 204, finished(10));
+
+    // the first entry was overwritten
+    JsonArray slowest = log.slowest(10);
+    assertEquals(2, slowest.size());
+    JsonObject first = slowest.getJsonObject(0);
+    assertEquals("POST", first.getString("method"));
+    assertEquals("/todos", first.getString("path"));
+    assertEquals(201, first.getInteger("status").intValue());
+    assertTrue(first.getLong("timestamp") > 0);
+    assertTrue(first.getJsonObject("timings").getDouble("total") >= 20);
+    assertEquals("/todos/2", slowest.getJsonObject(1).getString("path"));
+    assertEquals(1, log.slowest(1).size());
+    assertEquals(0, log.slowest(0).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsEmptyCapacity() {
+    new SlowRequestLog(0, 100, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsSampleRateAboveOne() {
+    new SlowRequestLog(8, 100, 1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsNegativeLimit() {
+    new SlowRequestLog(8, 100, 1).slowest(-1);
+  }
+
+  private static RequestTiming finished(long millis) throws InterruptedException {
+    RequestTiming timing = new RequestTiming();
+    Thread.sleep(millis);
+    timing.mark(RequestTiming.Phase.SERVICE);
+    timing.finish();
+    return timing;
+  }
+}
@@ -0,0 +1,75 @@
+package io.vertx.blueprint.todolist.entity;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test case for {@link TodoParser}.
+ */
+public class TodoParserTest {
+
+  @Test
+  public void testParseMatchesConverter() {
+    String json = "{\"id\":164,\"title\":\"Test case...\",\"completed\":true,\"order\":22," +
+      "\"url\":\"/164\",\"extra\":{\"nested\":[1,2,3]}}";
+    Todo parsed = TodoParser.parse(Buffer.buffer(json));
+    Todo converted = new Todo(new JsonObject(json));
+    assertEquals(converted, parsed);
+    assertEquals(converted.getUrl(), parsed.getUrl());
+  }
+
+  @Test
+  public void testAbsentAndNullFieldsStayUnset() {
+    Todo patch = TodoParser.parse(Buffer.buffer("{\"title\":null,\"order\":\"7\",\"completed\":true}"));
+    Todo old = new Todo(1, "Old", false, 3, "/1");
+    Todo merged = old.merge(patch);
+    assertEquals("Old", merged.getTitle());
+    assertEquals(Integer.valueOf(3), merged.getOrder());
+    assertEquals(true, merged.isCompleted());
+  }
+
+  @Test
+  public void testParseDirectBuffer() {
+    byte[] bytes = "{\"id\":5,\"title\":\"direct\"}".getBytes();
+    Buffer direct = Buffer.buffer(Unpooled.directBuffer().writeBytes(bytes));
+    Todo todo = TodoParser.parse(direct);
+    assertEquals(5, todo.getId());
+    assertEquals("direct", todo.getTitle());
+  }
+
+  @Test
+  public void testEmptyBody() {
+    assertNull(TodoParser.parse(Buffer.buffer()));
+  }
+
+  @Test(expected = DecodeException.class)
+  public void testRejectsNonObject() {
+    TodoParser.parse(Buffer.buffer("[1,2]"));
+  }
+
+  @Test(expected = DecodeException.class)
+  public void testRejectsTruncatedObject() {
+    TodoParser.parse(Buffer.buffer("{\"id\":5,\"title\":"));
+  }
+
+  @Test(expected = DecodeException.class)
+  public void testRejectsOutOfRangeNumber() {
+    TodoParser.parse(Buffer.buffer("{\"id\":99999999999}"));
+  }
+
+  @Test(expected = DecodeException.class)
+  public void testRejectsTrailingContent() {
+    TodoParser.parse(Buffer.buffer("{\"id\":5} {\"id\":6}"));
+  }
+
+  @Test
+  public void testAllowsTrailingWhitespace() {
+    assertEquals(5, TodoParser.parse(Buffer.buffer("{\"id\":5}\r\n")).getId());
+  }
+}
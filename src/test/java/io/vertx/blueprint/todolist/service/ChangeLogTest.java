@@ -0,0 +1,80 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoChanges;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link ChangeLog}.
+ */
+public class ChangeLogTest {
+
+  @Test
+  public void testNetChangesSinceSequence() {
+    ChangeLog log = new ChangeLog(16);
+    long start = log.current();
+    log.recordUpsert(new Todo(1, "a", false, 1, null));
+    log.recordUpsert(new Todo(2, "b", false, 2, null));
+    long mid = log.current();
+    log.recordUpsert(new Todo(1, "a2", true, 1, null));
+    log.recordDelete("2");
+
+    TodoChanges all = log.since(start);
+    assertEquals(log.currentToken(), all.getSeq());
+    assertEquals(1, all.getUpserts().size());
+    assertEquals("a2", all.getUpserts().get(0).getTitle());
+    assertEquals(Collections.singletonList("2"), all.getDeletes());
+
+    TodoChanges later = log.since(mid);
+    assertEquals(1, later.getUpserts().size());
+    assertEquals(Collections.singletonList("2"), later.getDeletes());
+
+    TodoChanges none = log.since(log.current());
+    assertTrue(none.getUpserts().isEmpty());
+    assertTrue(none.getDeletes().isEmpty());
+  }
+
+  @Test
+  public void testResyncWhenCompactedOrReset() {
+    ChangeLog log = new ChangeLog(2);
+    long start = log.current();
+    log.recordDelete("1");
+    log.recordDelete("2");
+    assertEquals(2, log.since(start).getDeletes().size());
+    log.recordDelete("3");
+    assertNull(log.since(start));
+    assertEquals(Collections.singletonList("3"), log.since(start + 2).getDeletes());
+    assertNull(log.since(log.current() + 1));
+
+    long beforeReset = log.current();
+    log.recordReset();
+    assertNull(log.since(beforeReset));
+    assertTrue(log.since(log.current()).getDeletes().isEmpty());
+  }
+
+  @Test
+  public void testTokensAreBoundToTheLog() {
+    ChangeLog log = new ChangeLog(4);
+    ChangeLog other = new ChangeLog(4);
+    String start = log.currentToken();
+    log.recordDelete("1");
+    other.recordDelete("1");
+
+    assertEquals(Collections.singletonList("1"), log.since(start).getDeletes());
+    assertTrue(log.since(log.currentToken()).getDeletes().isEmpty());
+    // the same sequence handed out by another instance is not comparable
+    assertNull(log.since(other.currentToken()));
+    assertNull(other.since(start));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testMalformedToken() {
+    new ChangeLog(4).since("42");
+  }
+}
@@ -0,0 +1,48 @@
+package io.vertx.blueprint.todolist.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link ConsistentHashRing}.
+ */
+public class ConsistentHashRingTest {
+
+  private static final int KEYS = 10000;
+
+  @Test
+  public void testSpreadsKeysEvenly() {
+    List<String> nodes = Arrays.asList("a:6379", "b:6379", "c:6379", "d:6379");
+    ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes);
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < KEYS; i++) {
+      counts.merge(ring.nodeFor(String.valueOf(i)), 1, Integer::sum);
+    }
+    assertEquals(nodes.size(), counts.size());
+    int expected = KEYS / nodes.size();
+    counts.values().forEach(c -> assertTrue("unbalanced: " + counts, Math.abs(c - expected) < expected / 3));
+  }
+
+  @Test
+  public void testAddingNodeOnlyMovesItsKeys() {
+    ConsistentHashRing<String> before = new ConsistentHashRing<>(Arrays.asList("a", "b", "c"));
+    ConsistentHashRing<String> after = new ConsistentHashRing<>(Arrays.asList("a", "b", "c", "d"));
+    int moved = 0;
+    for (int i = 0; i < KEYS; i++) {
+      String key = String.valueOf(i);
+      String owner = after.nodeFor(key);
+      if (!owner.equals(before.nodeFor(key))) {
+        assertEquals("d", owner);
+        moved++;
+      }
+    }
+    assertTrue(moved > 0 && moved < KEYS / 2);
+  }
+}
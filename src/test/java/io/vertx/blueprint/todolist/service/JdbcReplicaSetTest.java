@@ -0,0 +1,121 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.reactivex.core.Vertx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test case for {@link JdbcReplicaSet}, with a primary and two replicas that are separate
+ * in-memory H2 databases, each knowing its own name.
+ */
+public class JdbcReplicaSetTest {
+
+  private static final AtomicInteger databases = new AtomicInteger();
+
+  private Vertx vertx;
+  private JdbcReplicaSet clients;
+
+  @Before
+  public void before() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void after() {
+    if (clients != null) {
+      clients.close().blockingAwait();
+    }
+    vertx.close();
+  }
+
+  @Test
+  public void testReadsRoundRobinOverReplicas() {
+    start(0);
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      names.add(nameOf(clients.forRead("default", false)));
+    }
+    assertEquals(new HashSet<>(Arrays.asList("replica-0", "replica-1")), new HashSet<>(names));
+    assertNotEquals(names.get(0), names.get(1));
+    assertEquals(names.subList(0, 2), names.subList(2, 4));
+    assertEquals("primary", nameOf(clients.primary()));
+  }
+
+  @Test
+  public void testFailedReplicasFallBackToPrimary() {
+    start(0);
+    SqlEndpoint first = clients.forRead("default", false);
+    clients.markFailed(first);
+    for (int i = 0; i < 3; i++) {
+      SqlEndpoint endpoint = clients.forRead("default", false);
+      assertNotSame(first, endpoint);
+      assertNotSame(clients.primary(), endpoint);
+    }
+    clients.markFailed(clients.forRead("default", false));
+    assertSame(clients.primary(), clients.forRead("default", false));
+  }
+
+  @Test
+  public void testPinsReadYourWritesOfWrittenList() {
+    start(60000);
+    clients.markWritten("work");
+    assertSame(clients.primary(), clients.forRead("work", true));
+    // only reads that ask for it, and only of the written list
+    assertNotSame(clients.primary(), clients.forRead("work", false));
+    assertNotSame(clients.primary(), clients.forRead("home", true));
+  }
+
+  @Test
+  public void testPinExpires() throws Exception {
+    start(50);
+    clients.markWritten("work");
+    assertSame(clients.primary(), clients.forRead("work", true));
+    Thread.sleep(100);
+    assertNotSame(clients.primary(), clients.forRead("work", true));
+  }
+
+  private void start(long pinMillis) {
+    clients = new JdbcReplicaSet(vertx, config(database("primary"))
+      .put("read_your_writes_ms", pinMillis)
+      // keep health checks from putting failed replicas back during the test
+      .put("replica.health_check_interval", 60000)
+      .put("replicas", new JsonArray()
+        .add(new JsonObject().put("url", database("replica-0")))
+        .add(new JsonObject().put("url", database("replica-1")))));
+  }
+
+  private String database(String name) {
+    String url = "jdbc:h2:mem:replicas" + databases.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    JdbcReplicaSet setup = new JdbcReplicaSet(vertx, config(url));
+    setup.primary().execute("CREATE TABLE node (name varchar(16))")
+      .andThen(setup.primary().update("INSERT INTO node VALUES (?)", new JsonArray().add(name)).toCompletable())
+      .andThen(setup.close())
+      .blockingAwait();
+    return url;
+  }
+
+  private static JsonObject config(String url) {
+    return new JsonObject()
+      .put("url", url)
+      .put("driver_class", "org.h2.Driver")
+      .put("max_pool_size", 4);
+  }
+
+  private static String nameOf(SqlEndpoint endpoint) {
+    return endpoint.query("SELECT name FROM node", null).blockingGet().getResults().get(0).getString(0);
+  }
+}
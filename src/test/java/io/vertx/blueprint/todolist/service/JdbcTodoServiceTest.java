@@ -0,0 +1,137 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoStats;
+import io.vertx.core.json.JsonObject;
+import io.vertx.reactivex.core.Vertx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test case for {@link JdbcTodoService}, against an in-memory H2 database in MySQL mode.
+ */
+public class JdbcTodoServiceTest {
+
+  private static final AtomicInteger databases = new AtomicInteger();
+
+  private Vertx vertx;
+  private JdbcTodoService service;
+
+  @Before
+  public void before() {
+    vertx = Vertx.vertx();
+    service = new JdbcTodoService(vertx, new JsonObject()
+      .put("url", "jdbc:h2:mem:todo" + databases.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+      .put("driver_class", "org.h2.Driver")
+      .put("max_pool_size", 4)
+      .put("stats.reconcile_interval", 0));
+    service.initData().blockingAwait();
+  }
+
+  @After
+  public void after() {
+    service.close().blockingAwait();
+    vertx.close();
+  }
+
+  @Test
+  public void testWritesKeepStatsInSync() {
+    Todo untitled = new Todo();
+    untitled.setId(1);
+    service.insert(untitled).blockingGet();
+    service.insertAll(Arrays.asList(todo(2, true), todo(3, true))).blockingAwait();
+    assertStats(3, 2, service.getStats().blockingGet());
+
+    Todo patch = new Todo();
+    patch.setCompleted(true);
+    service.update("1", patch).blockingGet();
+    patch.setCompleted(false);
+    service.update("2", patch).blockingGet();
+    assertStats(3, 2, service.getStats().blockingGet());
+    assertNull(service.getCertain("1").blockingGet().getTitle());
+
+    service.delete("3").blockingAwait();
+    assertStats(2, 1, service.getStats().blockingGet());
+    service.deleteAll().blockingAwait();
+    assertStats(0, 0, service.getStats().blockingGet());
+  }
+
+  @Test
+  public void testBatchUpsertAdjustsStats() {
+    service.insertAll(Arrays.asList(todo(1, true), todo(2, false))).blockingAwait();
+    // replaces two todos and adds one; for a repeated id the last occurrence wins
+    service.insertAll(Arrays.asList(todo(1, false), todo(2, true), todo(3, true), todo(3, false))).blockingAwait();
+    assertStats(3, 1, service.getStats().blockingGet());
+    assertEquals(3, service.getAll().blockingGet().size());
+  }
+
+  @Test
+  public void testListsHaveSeparateIds() {
+    TodoService other = service.forList("other");
+    other.initData().blockingAwait();
+    service.insert(todo(1, false)).blockingGet();
+    other.insert(todo(1, true)).blockingGet();
+    Todo replaced = todo(2, false);
+    replaced.setTitle("other list");
+    service.insertAll(Arrays.asList(todo(2, true))).blockingAwait();
+    other.insertAll(Arrays.asList(replaced)).blockingAwait();
+
+    assertEquals("Todo 2", service.getCertain("2").blockingGet().getTitle());
+    assertEquals("other list", other.getCertain("2").blockingGet().getTitle());
+    assertStats(2, 1, service.getStats().blockingGet());
+    assertStats(2, 1, other.getStats().blockingGet());
+
+    other.delete("1").blockingAwait();
+    assertEquals(2, service.getAll().blockingGet().size());
+    assertEquals(1, other.getAll().blockingGet().size());
+  }
+
+  @Test
+  public void testArchivePerList() throws Exception {
+    TodoService other = service.forList("other");
+    other.initData().blockingAwait();
+    service.insertAll(Arrays.asList(todo(1, true), todo(2, false))).blockingAwait();
+    Todo otherTodo = todo(1, true);
+    otherTodo.setTitle("other list");
+    other.insert(otherTodo).blockingGet();
+    // null columns have to match too
+    Todo untitled = new Todo();
+    untitled.setId(3);
+    untitled.setCompleted(true);
+    service.insert(untitled).blockingGet();
+    Thread.sleep(5);
+    long cutoff = System.currentTimeMillis();
+
+    assertEquals(3, (int) service.archiveCompleted(cutoff, 10).blockingGet());
+    assertStats(1, 0, service.getStats().blockingGet());
+    assertStats(0, 0, other.getStats().blockingGet());
+    assertEquals("Todo 1", service.getCertain("1").blockingGet().getTitle());
+    assertEquals("other list", other.getCertain("1").blockingGet().getTitle());
+
+    // restoring keeps the completion time, so the todo is archived again at the same cutoff
+    Todo patch = new Todo();
+    patch.setOrder(7);
+    other.update("1", patch).blockingGet();
+    assertStats(1, 1, other.getStats().blockingGet());
+    assertEquals(1, (int) service.archiveCompleted(cutoff, 10).blockingGet());
+    assertStats(0, 0, other.getStats().blockingGet());
+    assertEquals(7, (int) other.getCertain("1").blockingGet().getOrder());
+    assertEquals("Todo 1", service.getCertain("1").blockingGet().getTitle());
+  }
+
+  private static Todo todo(int id, boolean completed) {
+    return new Todo(id, "Todo " + id, completed, id, "/" + id);
+  }
+
+  private static void assertStats(long total, long completed, TodoStats stats) {
+    assertEquals(total, stats.getTotal());
+    assertEquals(completed, stats.getCompleted());
+  }
+}
@@ -0,0 +1,200 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Observable;
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoStats;
+import io.vertx.blueprint.todolist.support.EmbeddedRedisServer;
+import io.vertx.core.json.Json;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.redis.RedisOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test case for {@link RedisTodoService}, against an {@link EmbeddedRedisServer}.
+ */
+public class RedisTodoServiceTest {
+
+  private Vertx vertx;
+  private EmbeddedRedisServer redis;
+  private RedisTodoService service;
+
+  @Before
+  public void before() throws Exception {
+    vertx = Vertx.vertx();
+    redis = new EmbeddedRedisServer(vertx.getDelegate());
+    CompletableFuture<Integer> port = new CompletableFuture<>();
+    redis.listen(0, ar -> {
+      if (ar.succeeded()) {
+        port.complete(ar.result());
+      } else {
+        port.completeExceptionally(ar.cause());
+      }
+    });
+    service = new RedisTodoService(vertx, new RedisOptions().setPort(port.get(5, TimeUnit.SECONDS)), 0);
+  }
+
+  @After
+  public void after() {
+    vertx.close();
+  }
+
+  @Test
+  public void testWritesKeepStatsInSync() {
+    service.insert(todo(1, false)).blockingGet();
+    service.insertAll(Arrays.asList(todo(2, true), todo(3, true), todo(1, false))).blockingAwait();
+    assertStats(3, 2, service.getStats().blockingGet());
+
+    Todo patch = new Todo();
+    patch.setCompleted(true);
+    service.update("1", patch).blockingGet();
+    patch.setCompleted(false);
+    service.update("2", patch).blockingGet();
+    assertStats(3, 2, service.getStats().blockingGet());
+
+    service.delete("3").blockingAwait();
+    service.delete("42").blockingAwait();
+    assertStats(2, 1, service.getStats().blockingGet());
+    assertEquals(2, service.getAll().blockingGet().size());
+
+    service.deleteAll().blockingAwait();
+    assertStats(0, 0, service.getStats().blockingGet());
+  }
+
+  @Test
+  public void testInitDataBackfillsCounters() {
+    redis.execute("HSET", "VERT_TODO", "7", Json.encode(todo(7, true)));
+    redis.execute("HSET", "VERT_TODO", "8", Json.encode(todo(8, false)));
+    service.initData().blockingAwait();
+    // the two existing todos plus the sample one
+    assertStats(3, 1, service.getStats().blockingGet());
+  }
+
+  @Test
+  public void testExportScansEverything() {
+    List<Todo> todos = IntStream.rangeClosed(1, 1000)
+      .mapToObj(i -> todo(i, i % 2 == 0))
+      .collect(Collectors.toList());
+    service.insertAll(todos).blockingAwait();
+    List<Integer> ids = service.exportAll(64)
+      .flatMapIterable(page -> page)
+      .map(Todo::getId)
+      .sorted()
+      .toList()
+      .blockingGet();
+    assertEquals(IntStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList()), ids);
+  }
+
+  @Test
+  public void testArchivesOldCompletedTodos() {
+    service.insertAll(Arrays.asList(todo(1, true), todo(2, true), todo(3, false))).blockingAwait();
+    redis.execute("ZADD", "VERT_TODO:completed", "1000", "1");
+    TodoService work = service.forList("work");
+    work.insert(todo(4, true)).blockingGet();
+    redis.execute("ZADD", "VERT_TODO:list:work:completed", "1000", "4");
+
+    assertEquals(2, service.archiveCompleted(2000, 100).blockingGet().intValue());
+    assertEquals(2, service.getAll().blockingGet().size());
+    assertStats(2, 1, service.getStats().blockingGet());
+    assertEquals("todo 1", service.getCertain("1").blockingGet().getTitle());
+    assertEquals("todo 4", work.getCertain("4").blockingGet().getTitle());
+    assertStats(0, 0, work.getStats().blockingGet());
+
+    // updating an archived todo brings it back
+    Todo patch = new Todo();
+    patch.setCompleted(false);
+    service.update("1", patch).blockingGet();
+    assertEquals(3, service.getAll().blockingGet().size());
+    assertNull(redis.execute("HGET", "VERT_TODO:archive", "1"));
+
+    work.delete("4").blockingAwait();
+    assertNull(work.getCertain("4").blockingGet());
+  }
+
+  @Test
+  public void testListsAreSeparate() {
+    TodoService work = service.forList("work");
+    service.insert(todo(1, false)).blockingGet();
+    work.insert(todo(2, true)).blockingGet();
+    assertNull(work.getCertain("1").blockingGet());
+    assertEquals(1, work.getAll().blockingGet().size());
+    work.deleteAll().blockingAwait();
+    assertEquals(1, service.getAll().blockingGet().size());
+    assertTrue(service.forList(PartitionedTodoService.DEFAULT_LIST) == service);
+  }
+
+  @Test
+  public void testOpeningEmptyListLeavesNoKeys() {
+    service.forList("empty").initData().blockingAwait();
+    assertEquals(0L, redis.execute("EXISTS", "VERT_TODO:list:empty:stats"));
+
+    TodoService work = service.forList("work");
+    work.insert(todo(1, true)).blockingGet();
+    work.delete("1").blockingAwait();
+    work.initData().blockingAwait();
+    assertEquals(0L, redis.execute("EXISTS", "VERT_TODO:list:work:stats"));
+    assertStats(0, 0, work.getStats().blockingGet());
+  }
+
+  @Test
+  public void testRecoversFromScriptCacheFlush() {
+    service.insert(todo(1, false)).blockingGet();
+    redis.execute("SCRIPT", "FLUSH");
+    service.insert(todo(2, false)).blockingGet();
+    assertStats(2, 0, service.getStats().blockingGet());
+  }
+
+  @Test
+  public void testInjectedFaults() {
+    redis.setErrorRate("EVALSHA", 1);
+    try {
+      service.insert(todo(1, false)).blockingGet();
+      fail("Expected an injected error");
+    } catch (RuntimeException ex) {
+      assertTrue(ex.getMessage().contains(EmbeddedRedisServer.INJECTED_ERROR));
+    }
+    assertEquals(1, redis.injectedErrorCount());
+
+    redis.reset().setLatency(50).setJitter(20);
+    long start = System.nanoTime();
+    service.getAll().blockingGet();
+    assertTrue(System.nanoTime() - start >= 50_000_000L);
+  }
+
+  @Test
+  public void testRepliesStayInOrderUnderJitter() {
+    service.insertAll(IntStream.rangeClosed(1, 200)
+      .mapToObj(i -> todo(i, false))
+      .collect(Collectors.toList())).blockingAwait();
+    redis.setSeed(42).setJitter(10);
+    // every pipelined reply has to be matched with its own request
+    long matched = Observable.range(1, 200)
+      .flatMapMaybe(i -> service.getCertain(String.valueOf(i))
+        .filter(todo -> todo.getId() == i))
+      .count()
+      .blockingGet();
+    assertEquals(200, matched);
+  }
+
+  private static Todo todo(int id, boolean completed) {
+    return new Todo(id, "todo " + id, completed, id, "/todos/" + id);
+  }
+
+  private static void assertStats(long total, long completed, TodoStats stats) {
+    assertEquals("total", total, stats.getTotal());
+    assertEquals("completed", completed, stats.getCompleted());
+  }
+}
@@ -0,0 +1,151 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.blueprint.todolist.entity.TodoStats;
+import io.vertx.blueprint.todolist.support.EmbeddedRedisServer;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.redis.RedisOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link ShardedRedisTodoService}, against three {@link EmbeddedRedisServer} nodes.
+ */
+public class ShardedRedisTodoServiceTest {
+
+  private static final int NODES = 3;
+  private static final int BUCKETS = 16;
+
+  private Vertx vertx;
+  private List<EmbeddedRedisServer> nodes;
+  private ShardedRedisTodoService service;
+
+  @Before
+  public void before() throws Exception {
+    vertx = Vertx.vertx();
+    nodes = new ArrayList<>();
+    List<RedisOptions> options = new ArrayList<>();
+    for (int i = 0; i < NODES; i++) {
+      EmbeddedRedisServer node = new EmbeddedRedisServer(vertx.getDelegate());
+      CompletableFuture<Integer> port = new CompletableFuture<>();
+      node.listen(0, ar -> {
+        if (ar.succeeded()) {
+          port.complete(ar.result());
+        } else {
+          port.completeExceptionally(ar.cause());
+        }
+      });
+      nodes.add(node);
+      options.add(new RedisOptions().setPort(port.get(5, TimeUnit.SECONDS)));
+    }
+    service = new ShardedRedisTodoService(vertx, options, BUCKETS, 0);
+  }
+
+  @After
+  public void after() {
+    service.close().blockingAwait();
+    vertx.close();
+  }
+
+  @Test
+  public void testScatterGather() {
+    service.insertAll(todos(1, 300)).blockingAwait();
+    service.insert(todo(301, false)).blockingGet();
+    for (EmbeddedRedisServer node : nodes) {
+      assertTrue("every node holds buckets", dbSize(node) > 0);
+    }
+    assertEquals(301, service.getAll().blockingGet().size());
+    assertStats(301, 100, service.getStats().blockingGet());
+    assertEquals("todo 42", service.getCertain("42").blockingGet().getTitle());
+
+    service.delete("42").blockingAwait();
+    assertNull(service.getCertain("42").blockingGet());
+    assertStats(300, 99, service.getStats().blockingGet());
+
+    service.deleteAll().blockingAwait();
+    assertEquals(0, service.getAll().blockingGet().size());
+    assertStats(0, 0, service.getStats().blockingGet());
+    for (EmbeddedRedisServer node : nodes) {
+      assertEquals(0, dbSize(node));
+    }
+  }
+
+  @Test
+  public void testExportScansEveryBucket() {
+    service.insertAll(todos(1, 500)).blockingAwait();
+    List<Integer> ids = service.exportAll(32)
+      .flatMapIterable(page -> page)
+      .map(Todo::getId)
+      .sorted()
+      .toList()
+      .blockingGet();
+    assertEquals(IntStream.rangeClosed(1, 500).boxed().collect(Collectors.toList()), ids);
+  }
+
+  @Test
+  public void testListsAreBucketedAndArchived() {
+    TodoService work = service.forList("work");
+    work.initData().blockingAwait();
+    work.insertAll(todos(1, 60)).blockingAwait();
+    service.insertAll(todos(1, 3)).blockingAwait();
+    assertStats(60, 20, work.getStats().blockingGet());
+    long nodesWithList = nodes.stream()
+      .filter(node -> IntStream.range(0, BUCKETS)
+        .anyMatch(i -> ((Number) node.execute("EXISTS", "VERT_TODO:list:work:" + i)).longValue() > 0))
+      .count();
+    assertTrue("the list is spread over the nodes", nodesWithList > 1);
+
+    // everything completed so far is older than a cutoff in the future
+    assertEquals(21, service.archiveCompleted(System.currentTimeMillis() + 60000, 1000).blockingGet().intValue());
+    assertEquals(40, work.getAll().blockingGet().size());
+    assertStats(40, 0, work.getStats().blockingGet());
+    assertStats(2, 0, service.getStats().blockingGet());
+    assertEquals("todo 3", work.getCertain("3").blockingGet().getTitle());
+
+    work.deleteAll().blockingAwait();
+    assertNull(work.getCertain("3").blockingGet());
+    assertEquals(2, service.getAll().blockingGet().size());
+  }
+
+  @Test
+  public void testOpeningEmptyListLeavesNoKeys() {
+    service.forList("empty").initData().blockingAwait();
+    for (EmbeddedRedisServer node : nodes) {
+      assertEquals(0, dbSize(node));
+    }
+  }
+
+  /**
+   * Todos {@code from..to}, every third one completed.
+   */
+  private static List<Todo> todos(int from, int to) {
+    return IntStream.rangeClosed(from, to)
+      .mapToObj(i -> todo(i, i % 3 == 0))
+      .collect(Collectors.toList());
+  }
+
+  private static Todo todo(int id, boolean completed) {
+    return new Todo(id, "todo " + id, completed, id, "/todos/" + id);
+  }
+
+  private static long dbSize(EmbeddedRedisServer node) {
+    return ((Number) node.execute("DBSIZE")).longValue();
+  }
+
+  private static void assertStats(long total, long completed, TodoStats stats) {
+    assertEquals("total", total, stats.getTotal());
+    assertEquals("completed", completed, stats.getCompleted());
+  }
+}
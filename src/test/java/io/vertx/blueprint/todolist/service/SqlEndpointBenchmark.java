@@ -0,0 +1,105 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Flowable;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.ext.jdbc.JDBCClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code "worker"} and {@code "virtual"} executor modes of the JDBC service.
+ * <p>
+ * Each mode runs a burst of slow queries (a server-side sleep) and, while they are in
+ * flight, a few fast ones. {@link JDBCClient} runs the statements of one Vert.x context
+ * one after the other, so the burst is serialized and fast queries wait behind it. The
+ * virtual mode is only capped by the connection pool; it is measured both on virtual
+ * threads and on its platform thread pool ({@code "executor.virtual_threads": false}),
+ * since drivers that block inside a monitor pin virtual threads to their carriers.
+ * <p>
+ * Runs against an in-memory H2 database by default; pass a JDBC URL and driver class
+ * to measure a real one (it needs a {@code SLEEP_MS(ms)} function). Virtual threads
+ * need Java 21+, older JVMs run the platform pool twice. Usage:
+ * <pre>
+ * java -cp ... io.vertx.blueprint.todolist.service.SqlEndpointBenchmark [slowQueries] [sleepMs] [poolSize] [url driver]
+ * </pre>
+ */
+public class SqlEndpointBenchmark {
+
+  private static final int FAST_QUERIES = 50;
+
+  public static void main(String[] args) throws Exception {
+    int slowQueries = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+    int sleepMs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int poolSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    JsonObject config = new JsonObject()
+      .put("url", args.length > 3 ? args[3] : "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1")
+      .put("driver_class", args.length > 4 ? args[4] : "org.h2.Driver")
+      .put("max_pool_size", poolSize)
+      .put("initial_pool_size", poolSize)
+      .put("executor.max_waiting", slowQueries + FAST_QUERIES);
+
+    Vertx vertx = Vertx.vertx();
+    try {
+      System.out.printf("%d slow queries of %d ms, %d fast queries, %d connections%n",
+        slowQueries, sleepMs, FAST_QUERIES, poolSize);
+      System.out.printf("%-9s %10s %12s %14s %14s%n", "mode", "burst ms", "slow q/s", "fast p50 ms", "fast max ms");
+      SqlEndpoint worker = new ClientSqlEndpoint(JDBCClient.createShared(vertx, config, "benchmark"));
+      run("worker", worker, slowQueries, sleepMs);
+      worker.close().blockingAwait();
+      SqlEndpoint platform = new VirtualThreadSqlEndpoint(vertx, config.copy().put("executor.virtual_threads", false));
+      run("platform", platform, slowQueries, sleepMs);
+      platform.close().blockingAwait();
+      SqlEndpoint virtual = new VirtualThreadSqlEndpoint(vertx, config);
+      run("virtual", virtual, slowQueries, sleepMs);
+      virtual.close().blockingAwait();
+    } finally {
+      vertx.close();
+    }
+  }
+
+  /**
+   * Function behind {@code SLEEP_MS} in H2.
+   */
+  public static int sleep(int ms) throws InterruptedException {
+    Thread.sleep(ms);
+    return ms;
+  }
+
+  private static void run(String mode, SqlEndpoint endpoint, int slowQueries, int sleepMs) {
+    endpoint.execute("CREATE ALIAS IF NOT EXISTS SLEEP_MS FOR \"" + SqlEndpointBenchmark.class.getName() + ".sleep\"")
+      .blockingAwait();
+    // warm up the pool and the code paths
+    Flowable.range(0, 100)
+      .flatMapSingle(i -> endpoint.query("SELECT 1", null))
+      .blockingLast();
+
+    List<Long> fastLatencies = Collections.synchronizedList(new ArrayList<>());
+    long start = System.nanoTime();
+    Flowable<Object> slow = Flowable.range(0, slowQueries)
+      .flatMapSingle(i -> endpoint.query("SELECT SLEEP_MS(?)", new JsonArray().add(sleepMs)), false, Integer.MAX_VALUE)
+      .cast(Object.class);
+    // fast queries start once the burst is queued
+    Flowable<Object> fast = Flowable.range(0, FAST_QUERIES)
+      .delay(10, TimeUnit.MILLISECONDS)
+      .flatMapSingle(i -> {
+        long sent = System.nanoTime();
+        return endpoint.query("SELECT 1", null)
+          .doOnSuccess(rs -> fastLatencies.add(System.nanoTime() - sent));
+      }, false, Integer.MAX_VALUE)
+      .cast(Object.class);
+    Flowable.merge(slow, fast).blockingLast();
+    long elapsed = System.nanoTime() - start;
+
+    Collections.sort(fastLatencies);
+    System.out.printf("%-9s %10d %12.0f %14.1f %14.1f%n", mode,
+      TimeUnit.NANOSECONDS.toMillis(elapsed),
+      slowQueries * 1e9 / elapsed,
+      fastLatencies.get(fastLatencies.size() / 2) / 1e6,
+      fastLatencies.get(fastLatencies.size() - 1) / 1e6);
+  }
+}
@@ -0,0 +1,42 @@
+package io.vertx.blueprint.todolist.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test case for {@link TitleIndex}.
+ */
+public class TitleIndexTest {
+
+  @Test
+  public void testSearchMatchesAllTokensAndPrefix() {
+    TitleIndex index = new TitleIndex();
+    index.put(3, "Buy milk and bread");
+    index.put(1, "Buy MILK");
+    index.put(2, "Walk the dog");
+    index.put(7, "Buy milkshake");
+    assertArrayEquals(new int[]{1, 3, 7}, index.search("buy mil", 10));
+    assertArrayEquals(new int[]{1, 3}, index.search("milk buy", 10));
+    assertArrayEquals(new int[]{1, 3}, index.search("buy, milk ", 2));
+    assertArrayEquals(new int[0], index.search("buy dog", 10));
+    assertArrayEquals(new int[0], index.search("  ", 10));
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    TitleIndex index = new TitleIndex();
+    for (int i = 100; i > 0; i--) {
+      index.put(i, "task " + i);
+    }
+    assertEquals(100, index.search("task", 1000).length);
+    index.put(50, "renamed");
+    index.remove(10);
+    assertEquals(98, index.search("task", 1000).length);
+    assertArrayEquals(new int[]{50}, index.search("renamed", 10));
+    assertArrayEquals(new int[]{100}, index.search("10", 10));
+    index.clear();
+    assertEquals(0, index.size());
+  }
+}
@@ -0,0 +1,29 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.blueprint.todolist.entity.Todo;
+import io.vertx.core.json.Json;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link TodoArchiveCodec}.
+ */
+public class TodoArchiveCodecTest {
+
+  @Test
+  public void testRoundTripIsSmallerThanJson() {
+    Todo todo = new Todo(2139, "Water the plants on the balcony", true, 12,
+      "http://localhost:8082/todos/2139");
+    String data = TodoArchiveCodec.encode(todo);
+    Todo decoded = TodoArchiveCodec.decode(data);
+    assertEquals(Json.encode(todo), Json.encode(decoded));
+    assertTrue(data.length() < Json.encode(todo).length());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsUnknownFormat() {
+    TodoArchiveCodec.decode("{\"id\":1}");
+  }
+}
@@ -0,0 +1,44 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.reactivex.Single;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test case for {@link TodoListCache}.
+ */
+public class TodoListCacheTest {
+
+  @Test
+  public void testOpensOnceAndEvictsLeastRecentlyUsed() {
+    AtomicInteger opened = new AtomicInteger();
+    TodoListCache<String> cache = new TodoListCache<>(2, id -> {
+      opened.incrementAndGet();
+      return Single.just(id);
+    });
+    assertEquals("a", cache.get("a").blockingGet());
+    assertEquals("b", cache.get("b").blockingGet());
+    cache.get("a").blockingGet();
+    assertEquals(2, opened.get());
+    cache.get("c").blockingGet();
+    assertEquals(2, cache.size());
+    cache.get("a").blockingGet();
+    assertEquals(3, opened.get());
+    cache.get("b").blockingGet();
+    assertEquals(4, opened.get());
+  }
+
+  @Test
+  public void testFailedOpenIsRetried() {
+    AtomicInteger opened = new AtomicInteger();
+    TodoListCache<String> cache = new TodoListCache<>(2, id -> opened.incrementAndGet() == 1
+      ? Single.error(new IllegalStateException("down"))
+      : Single.just(id));
+    cache.get("a").test().assertError(IllegalStateException.class);
+    assertEquals(0, cache.size());
+    assertEquals("a", cache.get("a").blockingGet());
+  }
+}
@@ -0,0 +1,85 @@
+package io.vertx.blueprint.todolist.service;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.reactivex.core.Vertx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for {@link VirtualThreadSqlEndpoint}, against an in-memory H2 database.
+ */
+public class VirtualThreadSqlEndpointTest {
+
+  private Vertx vertx;
+  private VirtualThreadSqlEndpoint endpoint;
+
+  @Before
+  public void before() {
+    vertx = Vertx.vertx();
+    endpoint = new VirtualThreadSqlEndpoint(vertx, new JsonObject()
+      .put("url", "jdbc:h2:mem:virtual;MODE=MySQL;DB_CLOSE_DELAY=-1")
+      .put("driver_class", "org.h2.Driver")
+      .put("max_pool_size", 4));
+    // a BIGINT flag makes H2 sum it as a DECIMAL, as MySQL does for any SUM
+    endpoint.execute("CREATE TABLE `todo` (`id` INT, `list_id` VARCHAR(64), `completed` BIGINT, " +
+      "`created` TIMESTAMP, PRIMARY KEY (`list_id`, `id`))").blockingAwait();
+  }
+
+  @After
+  public void after() {
+    endpoint.execute("DROP TABLE `todo`").blockingAwait();
+    endpoint.close().blockingAwait();
+    vertx.close();
+  }
+
+  @Test
+  public void testStatsQuery() {
+    insert("default", 1, 1);
+    insert("default", 2, 0);
+    insert("default", 3, 1);
+    insert("other", 1, 1);
+    ResultSet rs = endpoint.query(JdbcTodoService.SQL_STATS, new JsonArray().add("default")).blockingGet();
+    JsonArray row = rs.getResults().get(0);
+    assertEquals(3, ((Number) row.getValue(0)).longValue());
+    assertEquals(2, ((Number) row.getValue(1)).longValue());
+  }
+
+  @Test
+  public void testTemporalValuesAsIsoStrings() {
+    endpoint.update("INSERT INTO `todo` VALUES (?, ?, ?, ?)",
+      new JsonArray().add(1).add("default").add(0).add("2017-11-05T10:15:30Z")).blockingGet();
+    ResultSet rs = endpoint.query("SELECT `created` FROM `todo`", null).blockingGet();
+    assertEquals("2017-11-05T10:15:30Z", rs.getResults().get(0).getString(0));
+  }
+
+  @Test
+  public void testNullsAndDecimals() {
+    insert("default", 1, 1);
+    ResultSet rs = endpoint.query("SELECT `created`, CAST(1.5 AS DECIMAL(3, 1)) FROM `todo`", null).blockingGet();
+    JsonArray row = rs.getResults().get(0);
+    assertNull(row.getValue(0));
+    assertEquals(1.5, row.getDouble(1), 0);
+  }
+
+  @Test
+  public void testPlatformThreadsForPinningDrivers() {
+    assertTrue(VirtualThreadSqlEndpoint.pinsCarrierThreads("org.h2.Driver"));
+    // the bundled Connector/J 6
+    assertTrue(VirtualThreadSqlEndpoint.pinsCarrierThreads("com.mysql.cj.jdbc.Driver"));
+    assertFalse(VirtualThreadSqlEndpoint.pinsCarrierThreads("org.postgresql.Driver"));
+    assertFalse(VirtualThreadSqlEndpoint.pinsCarrierThreads(null));
+  }
+
+  private void insert(String listId, int id, int completed) {
+    endpoint.update("INSERT INTO `todo` (`id`, `list_id`, `completed`) VALUES (?, ?, ?)",
+      new JsonArray().add(id).add(listId).add(completed)).blockingGet();
+  }
+}
@@ -0,0 +1,317 @@
+package io.vertx.blueprint.todolist.support;
+
+import io.vertx.blueprint.todolist.support.RedisStore.RedisError;
+import io.vertx.blueprint.todolist.support.RedisStore.Status;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetSocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-JVM server speaking enough of the Redis protocol (RESP) for the todo services:
+ * hashes, sorted sets, counters, {@code SCAN}/{@code HSCAN} and Lua scripts with
+ * {@code EVAL}/{@code EVALSHA} (see {@link RedisStore}), so tests do not need an
+ * external Redis.
+ * <p>
+ * Faults can be injected to test timeouts, backpressure and tail behavior: every reply
+ * is delayed by {@code latency} plus a random {@code jitter} (replies on a connection
+ * stay in order, as with a real server), and commands fail with an error reply at the
+ * configured rate, globally or per command. Randomness is seeded so runs are reproducible.
+ */
+public class EmbeddedRedisServer {
+
+  public static final String INJECTED_ERROR = "ERR injected fault";
+
+  private final Vertx vertx;
+  private final RedisStore store = new RedisStore();
+  private final Map<String, Double> commandErrorRates = new ConcurrentHashMap<>();
+  private final AtomicLong commands = new AtomicLong();
+  private final AtomicLong injectedErrors = new AtomicLong();
+  private volatile long latency;
+  private volatile long jitter;
+  private volatile double errorRate;
+  private Random random = new Random(0);
+  private NetServer server;
+
+  public EmbeddedRedisServer(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  /**
+   * Set the fixed delay added to every reply, in milliseconds.
+   */
+  public EmbeddedRedisServer setLatency(long latency) {
+    this.latency = latency;
+    return this;
+  }
+
+  /**
+   * Set the maximum random delay added to every reply on top of the latency, in milliseconds.
+   */
+  public EmbeddedRedisServer setJitter(long jitter) {
+    this.jitter = jitter;
+    return this;
+  }
+
+  /**
+   * Set the probability for any command to fail with {@link #INJECTED_ERROR}.
+   */
+  public EmbeddedRedisServer setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+    return this;
+  }
+
+  /**
+   * Set the probability for one command to fail with {@link #INJECTED_ERROR},
+   * instead of the global rate.
+   */
+  public EmbeddedRedisServer setErrorRate(String command, double errorRate) {
+    commandErrorRates.put(command.toUpperCase(Locale.ROOT), errorRate);
+    return this;
+  }
+
+  public synchronized EmbeddedRedisServer setSeed(long seed) {
+    this.random = new Random(seed);
+    return this;
+  }
+
+  /**
+   * Clear the injected faults.
+   */
+  public EmbeddedRedisServer reset() {
+    latency = 0;
+    jitter = 0;
+    errorRate = 0;
+    commandErrorRates.clear();
+    return this;
+  }
+
+  /**
+   * Remove every key.
+   */
+  public void flushAll() {
+    store.execute(Collections.singletonList("FLUSHALL"));
+  }
+
+  /**
+   * Run a command directly against the keyspace, bypassing fault injection.
+   */
+  public Object execute(String... command) {
+    return store.execute(Arrays.asList(command));
+  }
+
+  public long commandCount() {
+    return commands.get();
+  }
+
+  public long injectedErrorCount() {
+    return injectedErrors.get();
+  }
+
+  /**
+   * Start listening.
+   *
+   * @param port    port, or 0 for a free one
+   * @param handler called with the actual port
+   */
+  public void listen(int port, Handler<AsyncResult<Integer>> handler) {
+    server = vertx.createNetServer()
+      .connectHandler(socket -> new Connection(socket).start());
+    server.listen(port, "127.0.0.1", ar -> handler.handle(ar.map(NetServer::actualPort)));
+  }
+
+  public int actualPort() {
+    return server.actualPort();
+  }
+
+  public void close(Handler<AsyncResult<Void>> handler) {
+    if (server == null) {
+      handler.handle(Future.succeededFuture());
+      return;
+    }
+    server.close(handler);
+  }
+
+  private Object dispatch(List<String> command) {
+    commands.incrementAndGet();
+    Double rate = commandErrorRates.get(command.get(0).toUpperCase(Locale.ROOT));
+    if (nextDouble() < (rate != null ? rate : errorRate)) {
+      injectedErrors.incrementAndGet();
+      return new RedisError(INJECTED_ERROR);
+    }
+    try {
+      return store.execute(command);
+    } catch (RedisError ex) {
+      return ex;
+    }
+  }
+
+  private synchronized double nextDouble() {
+    return random.nextDouble();
+  }
+
+  private synchronized long nextDelay() {
+    long j = jitter;
+    return latency + (j > 0 ? (long) (random.nextDouble() * (j + 1)) : 0);
+  }
+
+  static void encode(Object reply, Buffer out) {
+    if (reply == null) {
+      out.appendString("$-1\r\n");
+    } else if (reply instanceof Long) {
+      out.appendString(":" + reply + "\r\n");
+    } else if (reply instanceof String) {
+      byte[] bytes = ((String) reply).getBytes(StandardCharsets.UTF_8);
+      out.appendString("$" + bytes.length + "\r\n").appendBytes(bytes).appendString("\r\n");
+    } else if (reply instanceof Status) {
+      out.appendString("+" + ((Status) reply).text + "\r\n");
+    } else if (reply instanceof RedisError) {
+      out.appendString("-" + ((RedisError) reply).getMessage() + "\r\n");
+    } else {
+      List<?> list = (List<?>) reply;
+      out.appendString("*" + list.size() + "\r\n");
+      for (Object item : list) {
+        encode(item, out);
+      }
+    }
+  }
+
+  /**
+   * One client connection: parses pipelined commands and writes replies back in order,
+   * once their injected delay has passed.
+   */
+  private final class Connection {
+    private final NetSocket socket;
+    private final Queue<Reply> replies = new ArrayDeque<>();
+    private Buffer pending = Buffer.buffer();
+    private int position;
+    private long lastDue;
+    private boolean timerSet;
+
+    Connection(NetSocket socket) {
+      this.socket = socket;
+    }
+
+    void start() {
+      socket.handler(chunk -> {
+        pending.appendBuffer(chunk);
+        List<String> command;
+        while ((command = parse()) != null) {
+          if (!command.isEmpty()) {
+            reply(dispatch(command));
+          }
+        }
+        if (position > 0) {
+          pending = pending.getBuffer(position, pending.length());
+          position = 0;
+        }
+      });
+    }
+
+    private void reply(Object result) {
+      Buffer out = Buffer.buffer();
+      encode(result, out);
+      long delay = nextDelay();
+      if (delay <= 0 && replies.isEmpty()) {
+        socket.write(out);
+        return;
+      }
+      long now = System.currentTimeMillis();
+      // a reply never overtakes the previous one
+      lastDue = Math.max(lastDue, now + delay);
+      replies.add(new Reply(lastDue, out));
+      schedule(now);
+    }
+
+    private void schedule(long now) {
+      if (!timerSet && !replies.isEmpty()) {
+        timerSet = true;
+        vertx.setTimer(Math.max(1, replies.peek().due - now), id -> {
+          timerSet = false;
+          long time = System.currentTimeMillis();
+          while (!replies.isEmpty() && replies.peek().due <= time) {
+            socket.write(replies.poll().data);
+          }
+          schedule(time);
+        });
+      }
+    }
+
+    /**
+     * @return the next command, an empty list for a blank line, or null if more input is needed
+     */
+    private List<String> parse() {
+      if (position >= pending.length()) {
+        return null;
+      }
+      int start = position;
+      if (pending.getByte(position) != '*') {
+        // inline command
+        String line = readLine();
+        if (line == null) {
+          return null;
+        }
+        String trimmed = line.trim();
+        return trimmed.isEmpty() ? Collections.emptyList() : Arrays.asList(trimmed.split("\\s+"));
+      }
+      String header = readLine();
+      if (header == null) {
+        return null;
+      }
+      int n = Integer.parseInt(header.substring(1));
+      List<String> command = new ArrayList<>(Math.max(n, 0));
+      for (int i = 0; i < n; i++) {
+        String length = readLine();
+        if (length == null) {
+          position = start;
+          return null;
+        }
+        int size = Integer.parseInt(length.substring(1));
+        if (pending.length() < position + size + 2) {
+          position = start;
+          return null;
+        }
+        command.add(pending.getString(position, position + size, "UTF-8"));
+        position += size + 2;
+      }
+      return command;
+    }
+
+    private String readLine() {
+      for (int i = position; i + 1 < pending.length(); i++) {
+        if (pending.getByte(i) == '\r' && pending.getByte(i + 1) == '\n') {
+          String line = pending.getString(position, i, "UTF-8");
+          position = i + 2;
+          return line;
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final class Reply {
+    private final long due;
+    private final Buffer data;
+
+    Reply(long due, Buffer data) {
+      this.due = due;
+      this.data = data;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package io.vertx.blueprint.todolist.support;
+
+import io.vertx.blueprint.todolist.support.RedisStore.RedisError;
+import io.vertx.blueprint.todolist.support.RedisStore.Status;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lua scripting for {@link RedisStore}, on LuaJ.
+ * <p>
+ * Scripts see {@code KEYS}, {@code ARGV} and a {@code redis} table with {@code call},
+ * {@code pcall}, {@code error_reply} and {@code status_reply}, and values are converted
+ * between Redis replies and Lua the same way Redis does.
+ */
+final class LuaScripts {
+
+  private final RedisStore store;
+  private final Globals globals = JsePlatform.standardGlobals();
+  private final Map<String, LuaValue> scripts = new HashMap<>();
+
+  LuaScripts(RedisStore store) {
+    this.store = store;
+    LuaTable redis = new LuaTable();
+    redis.set("call", new VarArgFunction() {
+      @Override
+      public Varargs invoke(Varargs args) {
+        return redisCall(args, false);
+      }
+    });
+    redis.set("pcall", new VarArgFunction() {
+      @Override
+      public Varargs invoke(Varargs args) {
+        return redisCall(args, true);
+      }
+    });
+    redis.set("error_reply", new OneArgFunction() {
+      @Override
+      public LuaValue call(LuaValue message) {
+        return LuaValue.tableOf(new LuaValue[]{LuaValue.valueOf("err"), message});
+      }
+    });
+    redis.set("status_reply", new OneArgFunction() {
+      @Override
+      public LuaValue call(LuaValue message) {
+        return LuaValue.tableOf(new LuaValue[]{LuaValue.valueOf("ok"), message});
+      }
+    });
+    globals.set("redis", redis);
+  }
+
+  String load(String source) {
+    String sha = sha1(source);
+    if (!scripts.containsKey(sha)) {
+      try {
+        scripts.put(sha, globals.load(source, "@user_script"));
+      } catch (LuaError ex) {
+        throw new RedisError("ERR Error compiling script " + ex.getMessage());
+      }
+    }
+    return sha;
+  }
+
+  boolean exists(String sha) {
+    return scripts.containsKey(sha.toLowerCase());
+  }
+
+  void flush() {
+    scripts.clear();
+  }
+
+  Object eval(String source, List<String> keys, List<String> args) {
+    return evalSha(load(source), keys, args);
+  }
+
+  Object evalSha(String sha, List<String> keys, List<String> args) {
+    LuaValue script = scripts.get(sha.toLowerCase());
+    if (script == null) {
+      throw new RedisError("NOSCRIPT No matching script. Please use EVAL.");
+    }
+    globals.set("KEYS", toTable(keys));
+    globals.set("ARGV", toTable(args));
+    try {
+      return fromLua(script.call());
+    } catch (LuaError ex) {
+      throw new RedisError(ex.getMessage().startsWith("ERR") || ex.getMessage().startsWith("WRONGTYPE")
+        ? ex.getMessage() : "ERR Error running script: " + ex.getMessage());
+    }
+  }
+
+  private Varargs redisCall(Varargs args, boolean protect) {
+    List<String> command = new ArrayList<>(args.narg());
+    for (int i = 1; i <= args.narg(); i++) {
+      LuaValue arg = args.arg(i);
+      if (!arg.isstring()) {
+        throw new LuaError("ERR Lua redis() command arguments must be strings or integers");
+      }
+      command.add(arg.isnumber() ? RedisStore.formatScore(arg.todouble()) : arg.tojstring());
+    }
+    try {
+      return toLua(store.execute(command));
+    } catch (RedisError ex) {
+      if (protect) {
+        return LuaValue.tableOf(new LuaValue[]{LuaValue.valueOf("err"), LuaValue.valueOf(ex.getMessage())});
+      }
+      throw new LuaError(ex.getMessage());
+    }
+  }
+
+  private static LuaValue toLua(Object reply) {
+    if (reply == null) {
+      return LuaValue.FALSE;
+    }
+    if (reply instanceof Long) {
+      return LuaValue.valueOf(((Long) reply).doubleValue());
+    }
+    if (reply instanceof String) {
+      return LuaValue.valueOf((String) reply);
+    }
+    if (reply instanceof Status) {
+      return LuaValue.tableOf(new LuaValue[]{LuaValue.valueOf("ok"), LuaValue.valueOf(((Status) reply).text)});
+    }
+    List<?> list = (List<?>) reply;
+    LuaTable table = new LuaTable(list.size(), 0);
+    for (int i = 0; i < list.size(); i++) {
+      table.set(i + 1, toLua(list.get(i)));
+    }
+    return table;
+  }
+
+  private static Object fromLua(LuaValue value) {
+    switch (value.type()) {
+      case LuaValue.TNUMBER:
+        return (long) value.todouble();
+      case LuaValue.TSTRING:
+        return value.tojstring();
+      case LuaValue.TBOOLEAN:
+        return value.toboolean() ? 1L : null;
+      case LuaValue.TTABLE:
+        LuaValue err = value.get("err");
+        if (err.isstring()) {
+          throw new RedisError(err.tojstring());
+        }
+        LuaValue ok = value.get("ok");
+        if (ok.isstring()) {
+          return new Status(ok.tojstring());
+        }
+        List<Object> list = new ArrayList<>();
+        for (int i = 1; !value.get(i).isnil(); i++) {
+          list.add(fromLua(value.get(i)));
+        }
+        return list;
+      default:
+        return null;
+    }
+  }
+
+  private static LuaTable toTable(List<String> values) {
+    LuaTable table = new LuaTable(values.size(), 0);
+    for (int i = 0; i < values.size(); i++) {
+      table.set(i + 1, LuaValue.valueOf(values.get(i)));
+    }
+    return table;
+  }
+
+  private static String sha1(String text) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(40);
+      for (byte b : digest) {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -0,0 +1,678 @@
+package io.vertx.blueprint.todolist.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory keyspace of {@link EmbeddedRedisServer}, executing commands with Redis semantics.
+ * <p>
+ * Replies are plain Java values: {@code String} (bulk string), {@code Long} (integer),
+ * {@code null} (nil), {@code List} (array), {@link Status} (simple string) and
+ * {@link RedisError} (error, thrown by {@link #execute(List)}).
+ */
+final class RedisStore {
+
+  private final Map<String, Object> data = new HashMap<>();
+  private final Map<String, Long> expires = new HashMap<>();
+  private final LuaScripts scripts = new LuaScripts(this);
+
+  synchronized Object execute(List<String> command) {
+    if (command.isEmpty()) {
+      throw new RedisError("ERR empty command");
+    }
+    String name = command.get(0).toUpperCase(Locale.ROOT);
+    List<String> args = command.subList(1, command.size());
+    switch (name) {
+      // connection and server
+      case "PING":
+        return args.isEmpty() ? new Status("PONG") : args.get(0);
+      case "ECHO":
+        arity(args, 1);
+        return args.get(0);
+      case "SELECT":
+      case "AUTH":
+      case "QUIT":
+        return Status.OK;
+      case "FLUSHALL":
+      case "FLUSHDB":
+        data.clear();
+        expires.clear();
+        return Status.OK;
+      case "DBSIZE":
+        expireAll();
+        return (long) data.size();
+      // keys
+      case "DEL":
+        return del(args);
+      case "EXISTS":
+        return exists(args);
+      case "PEXPIRE":
+        arity(args, 2);
+        return expire(args.get(0), parseLong(args.get(1)));
+      case "EXPIRE":
+        arity(args, 2);
+        return expire(args.get(0), parseLong(args.get(1)) * 1000);
+      case "PTTL":
+        arity(args, 1);
+        return pttl(args.get(0));
+      case "SCAN":
+        return scan(args);
+      // strings
+      case "GET":
+        arity(args, 1);
+        return get(args.get(0), String.class);
+      case "SET":
+        arity(args, 2);
+        del(args.subList(0, 1));
+        data.put(args.get(0), args.get(1));
+        return Status.OK;
+      case "INCR":
+        arity(args, 1);
+        return incrBy(args.get(0), 1);
+      case "INCRBY":
+        arity(args, 2);
+        return incrBy(args.get(0), parseLong(args.get(1)));
+      // hashes
+      case "HSET":
+      case "HMSET":
+        return hset(name, args);
+      case "HGET":
+        arity(args, 2);
+        return hash(args.get(0), false).get(args.get(1));
+      case "HMGET":
+        return hmget(args);
+      case "HVALS":
+        arity(args, 1);
+        return new ArrayList<Object>(hash(args.get(0), false).values());
+      case "HGETALL":
+        arity(args, 1);
+        return pairs(hash(args.get(0), false));
+      case "HDEL":
+        return hdel(args);
+      case "HLEN":
+        arity(args, 1);
+        return (long) hash(args.get(0), false).size();
+      case "HEXISTS":
+        arity(args, 2);
+        return hash(args.get(0), false).containsKey(args.get(1)) ? 1L : 0L;
+      case "HINCRBY":
+        arity(args, 3);
+        return hincrBy(args.get(0), args.get(1), parseLong(args.get(2)));
+      case "HSCAN":
+        return hscan(args);
+      // sorted sets
+      case "ZADD":
+        return zadd(args);
+      case "ZREM":
+        return zrem(args);
+      case "ZSCORE":
+        arity(args, 2);
+        Double score = zset(args.get(0), false).score(args.get(1));
+        return score == null ? null : formatScore(score);
+      case "ZCARD":
+        arity(args, 1);
+        return (long) zset(args.get(0), false).size();
+      case "ZRANGEBYSCORE":
+        return zrangeByScore(args);
+      // scripting
+      case "EVAL":
+        return eval(args, false);
+      case "EVALSHA":
+        return eval(args, true);
+      case "SCRIPT":
+        return script(args);
+      default:
+        throw new RedisError("ERR unknown command '" + command.get(0) + "'");
+    }
+  }
+
+  // keys
+
+  private long del(List<String> keys) {
+    long n = 0;
+    for (String key : keys) {
+      expireIfNeeded(key);
+      if (data.remove(key) != null) {
+        n++;
+      }
+      expires.remove(key);
+    }
+    return n;
+  }
+
+  private long exists(List<String> keys) {
+    long n = 0;
+    for (String key : keys) {
+      expireIfNeeded(key);
+      if (data.containsKey(key)) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  private long expire(String key, long millis) {
+    expireIfNeeded(key);
+    if (!data.containsKey(key)) {
+      return 0;
+    }
+    expires.put(key, System.currentTimeMillis() + millis);
+    return 1;
+  }
+
+  private long pttl(String key) {
+    expireIfNeeded(key);
+    if (!data.containsKey(key)) {
+      return -2;
+    }
+    Long at = expires.get(key);
+    return at == null ? -1 : Math.max(0, at - System.currentTimeMillis());
+  }
+
+  private Object scan(List<String> args) {
+    if (args.isEmpty()) {
+      throw syntaxError();
+    }
+    expireAll();
+    ScanOptions options = ScanOptions.parse(args, 1);
+    List<String> keys = new ArrayList<>(data.keySet());
+    Collections.sort(keys);
+    int cursor = parseCursor(args.get(0));
+    int end = Math.min(keys.size(), cursor + options.count);
+    List<Object> page = new ArrayList<>();
+    for (String key : keys.subList(Math.min(cursor, keys.size()), end)) {
+      if (options.matches(key)) {
+        page.add(key);
+      }
+    }
+    return Arrays.<Object>asList(end >= keys.size() ? "0" : String.valueOf(end), page);
+  }
+
+  // strings
+
+  private long incrBy(String key, long delta) {
+    String value = get(key, String.class);
+    long result = (value == null ? 0 : parseLong(value)) + delta;
+    data.put(key, String.valueOf(result));
+    return result;
+  }
+
+  // hashes
+
+  private long hset(String name, List<String> args) {
+    if (args.size() < 3 || args.size() % 2 == 0) {
+      throw new RedisError("ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command");
+    }
+    Map<String, String> hash = hash(args.get(0), true);
+    long added = 0;
+    for (int i = 1; i < args.size(); i += 2) {
+      if (hash.put(args.get(i), args.get(i + 1)) == null) {
+        added++;
+      }
+    }
+    return "HMSET".equals(name) ? 0 : added;
+  }
+
+  private Object hmget(List<String> args) {
+    if (args.size() < 2) {
+      throw wrongArity();
+    }
+    Map<String, String> hash = hash(args.get(0), false);
+    List<Object> values = new ArrayList<>(args.size() - 1);
+    for (String field : args.subList(1, args.size())) {
+      values.add(hash.get(field));
+    }
+    return values;
+  }
+
+  private long hdel(List<String> args) {
+    if (args.size() < 2) {
+      throw wrongArity();
+    }
+    Map<String, String> hash = hash(args.get(0), false);
+    long n = 0;
+    for (String field : args.subList(1, args.size())) {
+      if (hash.remove(field) != null) {
+        n++;
+      }
+    }
+    removeIfEmpty(args.get(0), hash.isEmpty());
+    return n;
+  }
+
+  private long hincrBy(String key, String field, long delta) {
+    Map<String, String> hash = hash(key, true);
+    String value = hash.get(field);
+    long result = (value == null ? 0 : parseLong(value)) + delta;
+    hash.put(field, String.valueOf(result));
+    return result;
+  }
+
+  private Object hscan(List<String> args) {
+    if (args.size() < 2) {
+      throw wrongArity();
+    }
+    TreeMap<String, String> hash = hash(args.get(0), false);
+    ScanOptions options = ScanOptions.parse(args, 2);
+    int cursor = parseCursor(args.get(1));
+    List<Object> page = new ArrayList<>();
+    int index = 0;
+    int end = Math.min(hash.size(), cursor + options.count);
+    for (Map.Entry<String, String> e : hash.entrySet()) {
+      if (index >= end) {
+        break;
+      }
+      if (index++ >= cursor && options.matches(e.getKey())) {
+        page.add(e.getKey());
+        page.add(e.getValue());
+      }
+    }
+    return Arrays.<Object>asList(end >= hash.size() ? "0" : String.valueOf(end), page);
+  }
+
+  // sorted sets
+
+  private long zadd(List<String> args) {
+    if (args.isEmpty()) {
+      throw wrongArity();
+    }
+    boolean nx = false;
+    boolean xx = false;
+    boolean ch = false;
+    int i = 1;
+    for (; i < args.size(); i++) {
+      String flag = args.get(i).toUpperCase(Locale.ROOT);
+      if ("NX".equals(flag)) {
+        nx = true;
+      } else if ("XX".equals(flag)) {
+        xx = true;
+      } else if ("CH".equals(flag)) {
+        ch = true;
+      } else {
+        break;
+      }
+    }
+    if ((args.size() - i) % 2 != 0 || i == args.size() || (nx && xx)) {
+      throw syntaxError();
+    }
+    SortedSet zset = zset(args.get(0), true);
+    long n = 0;
+    for (; i < args.size(); i += 2) {
+      double score = parseScore(args.get(i));
+      String member = args.get(i + 1);
+      Double old = zset.score(member);
+      if (old == null ? xx : nx) {
+        continue;
+      }
+      zset.put(member, score);
+      if (old == null || (ch && old != score)) {
+        n++;
+      }
+    }
+    removeIfEmpty(args.get(0), zset.size() == 0);
+    return n;
+  }
+
+  private long zrem(List<String> args) {
+    if (args.size() < 2) {
+      throw wrongArity();
+    }
+    SortedSet zset = zset(args.get(0), false);
+    long n = 0;
+    for (String member : args.subList(1, args.size())) {
+      if (zset.remove(member)) {
+        n++;
+      }
+    }
+    removeIfEmpty(args.get(0), zset.size() == 0);
+    return n;
+  }
+
+  private Object zrangeByScore(List<String> args) {
+    if (args.size() < 3) {
+      throw wrongArity();
+    }
+    SortedSet zset = zset(args.get(0), false);
+    ScoreBound min = ScoreBound.parse(args.get(1));
+    ScoreBound max = ScoreBound.parse(args.get(2));
+    boolean withScores = false;
+    long offset = 0;
+    long count = -1;
+    for (int i = 3; i < args.size(); i++) {
+      String option = args.get(i).toUpperCase(Locale.ROOT);
+      if ("WITHSCORES".equals(option)) {
+        withScores = true;
+      } else if ("LIMIT".equals(option) && i + 2 < args.size()) {
+        offset = parseLong(args.get(++i));
+        count = parseLong(args.get(++i));
+      } else {
+        throw syntaxError();
+      }
+    }
+    List<Object> result = new ArrayList<>();
+    long skipped = 0;
+    for (SortedSet.Entry e : zset.entries) {
+      if (!min.admitsAbove(e.score)) {
+        continue;
+      }
+      if (!max.admitsBelow(e.score) || (count >= 0 && result.size() >= count * (withScores ? 2 : 1))) {
+        break;
+      }
+      if (skipped++ < offset) {
+        continue;
+      }
+      result.add(e.member);
+      if (withScores) {
+        result.add(formatScore(e.score));
+      }
+    }
+    return result;
+  }
+
+  // scripting
+
+  private Object eval(List<String> args, boolean bySha) {
+    if (args.size() < 2) {
+      throw wrongArity();
+    }
+    int numKeys = (int) parseLong(args.get(1));
+    if (numKeys < 0 || numKeys > args.size() - 2) {
+      throw new RedisError("ERR Number of keys can't be greater than number of args");
+    }
+    List<String> keys = args.subList(2, 2 + numKeys);
+    List<String> argv = args.subList(2 + numKeys, args.size());
+    return bySha ? scripts.evalSha(args.get(0), keys, argv) : scripts.eval(args.get(0), keys, argv);
+  }
+
+  private Object script(List<String> args) {
+    if (args.isEmpty()) {
+      throw wrongArity();
+    }
+    switch (args.get(0).toUpperCase(Locale.ROOT)) {
+      case "LOAD":
+        arity(args, 2);
+        return scripts.load(args.get(1));
+      case "EXISTS":
+        List<Object> found = new ArrayList<>();
+        for (String sha : args.subList(1, args.size())) {
+          found.add(scripts.exists(sha) ? 1L : 0L);
+        }
+        return found;
+      case "FLUSH":
+        scripts.flush();
+        return Status.OK;
+      default:
+        throw syntaxError();
+    }
+  }
+
+  // helpers
+
+  private <T> T get(String key, Class<T> type) {
+    expireIfNeeded(key);
+    Object value = data.get(key);
+    if (value != null && !type.isInstance(value)) {
+      throw new RedisError("WRONGTYPE Operation against a key holding the wrong kind of value");
+    }
+    return type.cast(value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private TreeMap<String, String> hash(String key, boolean create) {
+    TreeMap<String, String> hash = get(key, TreeMap.class);
+    if (hash == null) {
+      hash = new TreeMap<>();
+      if (create) {
+        data.put(key, hash);
+      }
+    }
+    return hash;
+  }
+
+  private SortedSet zset(String key, boolean create) {
+    SortedSet zset = get(key, SortedSet.class);
+    if (zset == null) {
+      zset = new SortedSet();
+      if (create) {
+        data.put(key, zset);
+      }
+    }
+    return zset;
+  }
+
+  private void removeIfEmpty(String key, boolean empty) {
+    if (empty) {
+      data.remove(key);
+      expires.remove(key);
+    }
+  }
+
+  private void expireIfNeeded(String key) {
+    Long at = expires.get(key);
+    if (at != null && at <= System.currentTimeMillis()) {
+      data.remove(key);
+      expires.remove(key);
+    }
+  }
+
+  private void expireAll() {
+    for (String key : new ArrayList<>(expires.keySet())) {
+      expireIfNeeded(key);
+    }
+  }
+
+  private static List<Object> pairs(Map<String, String> map) {
+    List<Object> result = new ArrayList<>(map.size() * 2);
+    map.forEach((k, v) -> {
+      result.add(k);
+      result.add(v);
+    });
+    return result;
+  }
+
+  private static void arity(List<String> args, int n) {
+    if (args.size() != n) {
+      throw wrongArity();
+    }
+  }
+
+  private static int parseCursor(String cursor) {
+    long value = parseLong(cursor);
+    if (value < 0) {
+      throw new RedisError("ERR invalid cursor");
+    }
+    return (int) Math.min(Integer.MAX_VALUE, value);
+  }
+
+  static long parseLong(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      throw new RedisError("ERR value is not an integer or out of range");
+    }
+  }
+
+  private static double parseScore(String value) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException ex) {
+      throw new RedisError("ERR value is not a valid float");
+    }
+  }
+
+  static String formatScore(double score) {
+    if (score == Math.rint(score) && Math.abs(score) < 1e17) {
+      return String.valueOf((long) score);
+    }
+    return String.valueOf(score);
+  }
+
+  private static RedisError wrongArity() {
+    return new RedisError("ERR wrong number of arguments");
+  }
+
+  private static RedisError syntaxError() {
+    return new RedisError("ERR syntax error");
+  }
+
+  /**
+   * A simple string reply.
+   */
+  static final class Status {
+    static final Status OK = new Status("OK");
+
+    final String text;
+
+    Status(String text) {
+      this.text = text;
+    }
+  }
+
+  /**
+   * An error reply.
+   */
+  static final class RedisError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    RedisError(String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  private static final class ScanOptions {
+    private Pattern match;
+    private int count = 10;
+
+    static ScanOptions parse(List<String> args, int from) {
+      ScanOptions options = new ScanOptions();
+      for (int i = from; i < args.size(); i += 2) {
+        if (i + 1 >= args.size()) {
+          throw syntaxError();
+        }
+        String option = args.get(i).toUpperCase(Locale.ROOT);
+        if ("MATCH".equals(option)) {
+          options.match = glob(args.get(i + 1));
+        } else if ("COUNT".equals(option)) {
+          options.count = (int) Math.max(1, parseLong(args.get(i + 1)));
+        } else {
+          throw syntaxError();
+        }
+      }
+      return options;
+    }
+
+    boolean matches(String key) {
+      return match == null || match.matcher(key).matches();
+    }
+
+    private static Pattern glob(String pattern) {
+      StringBuilder regex = new StringBuilder();
+      for (char c : pattern.toCharArray()) {
+        if (c == '*') {
+          regex.append(".*");
+        } else if (c == '?') {
+          regex.append('.');
+        } else {
+          regex.append(Pattern.quote(String.valueOf(c)));
+        }
+      }
+      return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+  }
+
+  private static final class ScoreBound {
+    private final double value;
+    private final boolean exclusive;
+
+    private ScoreBound(double value, boolean exclusive) {
+      this.value = value;
+      this.exclusive = exclusive;
+    }
+
+    static ScoreBound parse(String text) {
+      boolean exclusive = text.startsWith("(");
+      String number = exclusive ? text.substring(1) : text;
+      switch (number.toLowerCase(Locale.ROOT)) {
+        case "-inf":
+          return new ScoreBound(Double.NEGATIVE_INFINITY, exclusive);
+        case "inf":
+        case "+inf":
+          return new ScoreBound(Double.POSITIVE_INFINITY, exclusive);
+        default:
+          try {
+            return new ScoreBound(Double.parseDouble(number), exclusive);
+          } catch (NumberFormatException ex) {
+            throw new RedisError("ERR min or max is not a float");
+          }
+      }
+    }
+
+    /** Whether a score is within this bound used as a minimum. */
+    boolean admitsAbove(double score) {
+      return exclusive ? score > value : score >= value;
+    }
+
+    /** Whether a score is within this bound used as a maximum. */
+    boolean admitsBelow(double score) {
+      return exclusive ? score < value : score <= value;
+    }
+  }
+
+  /**
+   * Sorted set, ordered by score then member.
+   */
+  private static final class SortedSet {
+    private final Map<String, Double> scores = new HashMap<>();
+    private final NavigableSet<Entry> entries = new TreeSet<>();
+
+    Double score(String member) {
+      return scores.get(member);
+    }
+
+    int size() {
+      return scores.size();
+    }
+
+    void put(String member, double score) {
+      Double old = scores.put(member, score);
+      if (old != null) {
+        entries.remove(new Entry(member, old));
+      }
+      entries.add(new Entry(member, score));
+    }
+
+    boolean remove(String member) {
+      Double old = scores.remove(member);
+      if (old == null) {
+        return false;
+      }
+      entries.remove(new Entry(member, old));
+      return true;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+      private final String member;
+      private final double score;
+
+      Entry(String member, double score) {
+        this.member = member;
+        this.score = score;
+      }
+
+      @Override
+      public int compareTo(Entry other) {
+        int c = Double.compare(score, other.score);
+        return c != 0 ? c : member.compareTo(other.member);
+      }
+    }
+  }
+}